@@ -0,0 +1,132 @@
+/*
+ * Copyright 2022 Falco Nikolas
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.nfalco79.bitbucket.client.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.github.nfalco79.bitbucket.client.BitbucketCloudClient;
+import com.github.nfalco79.bitbucket.client.Credentials.CredentialsBuilder;
+import com.github.nfalco79.bitbucket.client.internal.rest.CodeInsightsReportResponse;
+import com.github.nfalco79.bitbucket.client.internal.rest.PageReader;
+import com.github.nfalco79.bitbucket.client.internal.rest.PaginatedResponse;
+import com.github.nfalco79.bitbucket.client.internal.rest.PullRequestActivityResponse;
+import com.github.nfalco79.bitbucket.client.internal.rest.PullRequestResponse;
+import com.github.nfalco79.bitbucket.client.internal.rest.RepositoryResponse;
+import com.github.nfalco79.bitbucket.client.model.Activity;
+import com.github.nfalco79.bitbucket.client.model.CodeInsightsReport;
+import com.github.nfalco79.bitbucket.client.model.PullRequest;
+import com.github.nfalco79.bitbucket.client.model.Repository;
+
+/**
+ * Measures the JSON binding of a page of each response type, whole page
+ * binding against the token by token decoding used by the client.
+ * <p>
+ * Pages are built repeating the elements of the unit test fixtures.
+ * <p>
+ * Run with {@code java -jar target/benchmarks.jar BindingBenchmark}.
+ *
+ * @author Nikolas Falco
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BindingBenchmark {
+
+    public enum ResponseType {
+        REPOSITORY("/2.0/repositories/nfalco79", RepositoryResponse.class, Repository.class), //
+        PULL_REQUEST("/2.0/repositories/nfalco79/test-repos/pullrequests", PullRequestResponse.class, PullRequest.class), //
+        PULL_REQUEST_ACTIVITY("/2.0/repositories/nfalco79/test-repos/pullrequests/1/activity", PullRequestActivityResponse.class, Activity.class), //
+        CODE_INSIGHTS_REPORT("/2.0/repositories/nfalco79/test-repos/commit/dd3253a31044/reports", CodeInsightsReportResponse.class, CodeInsightsReport.class);
+
+        private final String fixture;
+        private final Class<? extends PaginatedResponse<?>> pageType;
+        private final Class<?> elementType;
+
+        ResponseType(String fixture, Class<? extends PaginatedResponse<?>> pageType, Class<?> elementType) {
+            this.fixture = fixture;
+            this.pageType = pageType;
+            this.elementType = elementType;
+        }
+    }
+
+    /*
+     * Exposes the deserialisation of the client as configured for requests.
+     */
+    private static class BindingClient extends BitbucketCloudClient {
+        BindingClient() {
+            super(CredentialsBuilder.anonymous());
+        }
+
+        <T> T read(InputStream content, Object type) throws IOException {
+            return readValue(content, type);
+        }
+
+        <T> PageReader<T> pageReader(Class<T> elementType, Blackhole blackhole) {
+            return new PageReader<>(objectMapper.readerFor(elementType), blackhole::consume);
+        }
+    }
+
+    @Param
+    public ResponseType responseType;
+
+    @Param({ "10", "100", "1000" })
+    public int pageLength;
+
+    private BindingClient client;
+    private byte[] payload;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        client = new BindingClient();
+        payload = Fixtures.scaledPage(responseType.fixture, pageLength);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        client.close();
+    }
+
+    @Benchmark
+    public PaginatedResponse<?> databind() throws IOException {
+        return client.read(new ByteArrayInputStream(payload), responseType.pageType);
+    }
+
+    @Benchmark
+    public PaginatedResponse<?> tokenStream(Blackhole blackhole) throws IOException {
+        return client.read(new ByteArrayInputStream(payload), client.pageReader(responseType.elementType, blackhole));
+    }
+}
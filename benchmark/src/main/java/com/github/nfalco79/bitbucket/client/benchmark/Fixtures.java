@@ -0,0 +1,101 @@
+/*
+ * Copyright 2022 Falco Nikolas
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.nfalco79.bitbucket.client.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Response payloads built from the fixtures of the client unit tests.
+ *
+ * @author Nikolas Falco
+ */
+public final class Fixtures {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private Fixtures() {
+    }
+
+    /**
+     * Returns the elements of the given fixture page.
+     *
+     * @param path the API path of the fixture, for example
+     *        {@code /2.0/repositories/nfalco79}
+     * @return the values of the page
+     * @throws IOException if the fixture is missing or malformed
+     */
+    public static List<JsonNode> values(String path) throws IOException {
+        String resource = "/fixtures" + path + "/response.json";
+        try (InputStream is = Fixtures.class.getResourceAsStream(resource)) {
+            if (is == null) {
+                throw new IOException("Missing fixture " + resource);
+            }
+            List<JsonNode> values = new ArrayList<>();
+            MAPPER.readTree(is).path("values").forEach(values::add);
+            if (values.isEmpty()) {
+                throw new IOException("Fixture " + resource + " has no values");
+            }
+            return values;
+        }
+    }
+
+    /**
+     * Returns a page of the given length with the elements of the fixture
+     * repeated in order.
+     *
+     * @param path the API path of the fixture
+     * @param length the number of elements in the page
+     * @return the JSON page
+     * @throws IOException if the fixture is missing or malformed
+     */
+    public static byte[] scaledPage(String path, int length) throws IOException {
+        return page(values(path), 1, length, length, null);
+    }
+
+    /**
+     * Returns a page made of the given elements repeated in order.
+     *
+     * @param values the elements to repeat
+     * @param page the page number
+     * @param length the number of elements in the page
+     * @param size the number of elements of all pages
+     * @param next the URL of the next page, {@code null} for the last one
+     * @return the JSON page
+     * @throws IOException if the page could not be serialised
+     */
+    public static byte[] page(List<JsonNode> values, int page, int length, int size, String next) throws IOException {
+        ObjectNode result = MAPPER.createObjectNode();
+        result.put("pagelen", length);
+        result.put("size", size);
+        result.put("page", page);
+        ArrayNode array = result.putArray("values");
+        for (int i = 0; i < length; i++) {
+            array.add(values.get(i % values.size()));
+        }
+        if (next != null) {
+            result.put("next", next);
+        }
+        return MAPPER.writeValueAsBytes(result);
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2022 Falco Nikolas
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.nfalco79.bitbucket.client.benchmark;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpStatus;
+import org.apache.hc.core5.http.NameValuePair;
+import org.apache.hc.core5.http.impl.bootstrap.HttpServer;
+import org.apache.hc.core5.http.impl.bootstrap.ServerBootstrap;
+import org.apache.hc.core5.http.io.entity.ByteArrayEntity;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.net.URIBuilder;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Local plain HTTP server that answers each page of the repositories of a
+ * workspace with the repositories of the unit test fixtures.
+ * <p>
+ * Pages are serialised once at startup so the server cost is the same for
+ * each request.
+ *
+ * @author Nikolas Falco
+ */
+public class PagesStubServer implements Closeable {
+
+    private final byte[][] pages;
+    private HttpServer server;
+
+    /**
+     * Create a server of the given number of pages.
+     *
+     * @param pages number of pages
+     * @param pageLength number of repositories in each page
+     * @throws IOException if the fixture could not be loaded
+     */
+    public PagesStubServer(int pages, int pageLength) throws IOException {
+        List<JsonNode> values = Fixtures.values("/2.0/repositories/nfalco79");
+        this.pages = new byte[pages][];
+        for (int i = 0; i < pages; i++) {
+            int page = i + 1;
+            String next = page < pages ? "https://api.bitbucket.org/2.0/repositories/workspace?pagelen=" + pageLength + "&page=" + (page + 1) : null;
+            this.pages[i] = Fixtures.page(values, page, pageLength, pages * pageLength, next);
+        }
+    }
+
+    /**
+     * Starts listening on a random local port.
+     *
+     * @return this server
+     * @throws IOException if the server could not be started
+     */
+    public PagesStubServer start() throws IOException {
+        server = ServerBootstrap.bootstrap() //
+                .setCanonicalHostName("api.bitbucket.org") //
+                .register("*", (request, response, context) -> {
+                    int page = 1;
+                    try {
+                        NameValuePair param = new URIBuilder(request.getUri()).getFirstQueryParam("page");
+                        if (param != null) {
+                            page = Integer.parseInt(param.getValue());
+                        }
+                    } catch (Exception e) {
+                        response.setCode(HttpStatus.SC_BAD_REQUEST);
+                        return;
+                    }
+                    if (page < 1 || page > pages.length) {
+                        response.setCode(HttpStatus.SC_NOT_FOUND);
+                        return;
+                    }
+                    response.setCode(HttpStatus.SC_OK);
+                    response.setEntity(new ByteArrayEntity(pages[page - 1], ContentType.APPLICATION_JSON));
+                }) //
+                .create();
+        server.start();
+        return this;
+    }
+
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    @Override
+    public void close() {
+        if (server != null) {
+            server.close(CloseMode.IMMEDIATE);
+        }
+    }
+}
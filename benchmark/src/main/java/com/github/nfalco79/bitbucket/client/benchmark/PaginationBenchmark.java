@@ -0,0 +1,106 @@
+/*
+ * Copyright 2022 Falco Nikolas
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.nfalco79.bitbucket.client.benchmark;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.HttpHost;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.nfalco79.bitbucket.client.BitbucketCloudClient;
+import com.github.nfalco79.bitbucket.client.ClientException;
+import com.github.nfalco79.bitbucket.client.Credentials.CredentialsBuilder;
+import com.github.nfalco79.bitbucket.client.model.Repository;
+
+/**
+ * Measures a paginated read end to end, from the request to the bound
+ * elements, against a local server without latency.
+ * <p>
+ * Run with {@code java -jar target/benchmarks.jar PaginationBenchmark}.
+ *
+ * @author Nikolas Falco
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PaginationBenchmark {
+
+    @Param({ "1", "10" })
+    public int pages;
+
+    @Param({ "10", "100" })
+    public int pageLength;
+
+    @Param({ "1", "4" })
+    public int pageConcurrency;
+
+    private PagesStubServer server;
+    private BitbucketCloudClient client;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        server = new PagesStubServer(pages, pageLength).start();
+        HttpHost stub = new HttpHost("http", "localhost", server.getPort());
+
+        client = new BitbucketCloudClient(CredentialsBuilder.anonymous()) {
+            @Override
+            protected CloseableHttpClient buildClient() {
+                // same setup of the client but routed to the local stub
+                return HttpClients.custom() //
+                        .setConnectionManager(PoolingHttpClientConnectionManagerBuilder.create() //
+                                .setMaxConnPerRoute(getTransportConfig().getMaxPerRoute()) //
+                                .setMaxConnTotal(getTransportConfig().getMaxTotal()) //
+                                .build()) //
+                        .setRoutePlanner((target, context) -> new HttpRoute(stub)) //
+                        .disableContentCompression() //
+                        .build();
+            }
+        };
+        client.setPageConcurrency(pageConcurrency);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        client.close();
+        server.close();
+    }
+
+    @Benchmark
+    public List<Repository> getPaginated() throws ClientException {
+        return client.getRepositories("workspace");
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2022 Falco Nikolas
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.nfalco79.bitbucket.client.benchmark;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.classic.methods.HttpUriRequest;
+import org.apache.hc.core5.http.HttpRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.nfalco79.bitbucket.client.BitbucketCloudClient;
+import com.github.nfalco79.bitbucket.client.ClientException;
+import com.github.nfalco79.bitbucket.client.Credentials;
+import com.github.nfalco79.bitbucket.client.Credentials.CredentialsBuilder;
+import com.github.nfalco79.bitbucket.client.internal.rest.BranchPermissionResponse;
+import com.github.nfalco79.bitbucket.client.internal.rest.PageReader;
+import com.github.nfalco79.bitbucket.client.model.BranchRestriction;
+
+/**
+ * Measures the work done to build a request before it is sent: URI template
+ * expansion of the read methods and the headers added by
+ * {@code setupRequest} with each kind of credentials.
+ * <p>
+ * Requests are never sent, the client answers with an empty page.
+ * <p>
+ * Run with {@code java -jar target/benchmarks.jar RequestBenchmark}.
+ *
+ * @author Nikolas Falco
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RequestBenchmark {
+
+    public enum CredentialsType {
+        ANONYMOUS, APP_PASSWORD, OAUTH2
+    }
+
+    /*
+     * Builds requests as usual but answers without any I/O.
+     */
+    private static class OfflineClient extends BitbucketCloudClient {
+        private final BranchPermissionResponse emptyPage = new BranchPermissionResponse();
+
+        OfflineClient() {
+            super(CredentialsBuilder.anonymous());
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        protected <T> T process(HttpUriRequest request, Object type) throws ClientException {
+            setupRequest(request);
+            return (T) ((PageReader<BranchRestriction>) type).replay(emptyPage);
+        }
+
+        void setup(HttpRequest request, Credentials credentials) {
+            setupRequest(request, credentials);
+        }
+    }
+
+    /*
+     * Only the header benchmark depends on the kind of credentials.
+     */
+    @State(Scope.Benchmark)
+    public static class CredentialsState {
+        @Param
+        public CredentialsType credentialsType;
+
+        private Credentials credentials;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            switch (credentialsType) {
+            case APP_PASSWORD:
+                credentials = CredentialsBuilder.appPassword("nfalco79", "app-password");
+                break;
+            case OAUTH2:
+                credentials = CredentialsBuilder.oauth2("client-id", "client-secret");
+                break;
+            default:
+                credentials = CredentialsBuilder.anonymous();
+                break;
+            }
+        }
+    }
+
+    private OfflineClient client;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        client = new OfflineClient();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        client.close();
+    }
+
+    @Benchmark
+    public List<BranchRestriction> getBranchRestrictions() throws ClientException {
+        return client.getBranchRestrictions("nfalco79", "test-repos");
+    }
+
+    @Benchmark
+    public HttpRequest setupRequest(CredentialsState state) {
+        HttpGet request = new HttpGet("https://api.bitbucket.org/2.0/repositories/nfalco79/test-repos");
+        client.setup(request, state.credentials);
+        return request;
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2022 Falco Nikolas
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.nfalco79.bitbucket.client.benchmark;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLContext;
+
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.HttpStatus;
+import org.apache.hc.core5.http.Message;
+import org.apache.hc.core5.http.URIScheme;
+import org.apache.hc.core5.http.impl.bootstrap.HttpAsyncServer;
+import org.apache.hc.core5.http.nio.AsyncRequestConsumer;
+import org.apache.hc.core5.http.nio.AsyncServerRequestHandler;
+import org.apache.hc.core5.http.nio.entity.AsyncEntityProducers;
+import org.apache.hc.core5.http.nio.entity.DiscardingEntityConsumer;
+import org.apache.hc.core5.http.nio.support.AsyncResponseBuilder;
+import org.apache.hc.core5.http.nio.support.BasicRequestConsumer;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.http2.impl.nio.bootstrap.H2ServerBootstrap;
+import org.apache.hc.core5.http2.ssl.H2ServerTlsStrategy;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.reactor.ListenerEndpoint;
+import org.apache.hc.core5.ssl.SSLContexts;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Local TLS server that negotiates HTTP/1.1 or HTTP/2 via ALPN and answers
+ * every request with the same single page of repositories.
+ * <p>
+ * Responses are delayed by the given latency without holding any thread, to
+ * reproduce the round trip to the remote host.
+ *
+ * @author Nikolas Falco
+ */
+public class TlsStubServer implements Closeable {
+
+    private static final String KEYSTORE = "/stub-keystore.p12";
+    private static final char[] KEYSTORE_PASSWORD = "changeit".toCharArray();
+
+    /**
+     * Returns a SSL context that trusts the self signed certificate of this
+     * server.
+     *
+     * @return a client SSL context
+     * @throws IOException if the key store could not be loaded
+     */
+    public static SSLContext trustContext() throws IOException {
+        try {
+            return SSLContexts.custom() //
+                    .loadTrustMaterial(keystore(), KEYSTORE_PASSWORD) //
+                    .build();
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static URL keystore() {
+        return TlsStubServer.class.getResource(KEYSTORE);
+    }
+
+    private final long latency;
+    private final byte[] payload;
+    private ScheduledExecutorService scheduler;
+    private HttpAsyncServer server;
+    private int port;
+
+    /**
+     * Create a server that answer after the given latency.
+     *
+     * @param latency response delay in milliseconds
+     * @param pageLength number of repositories in the served page
+     * @throws IOException if the response payload could not be generated
+     */
+    public TlsStubServer(long latency, int pageLength) throws IOException {
+        this.latency = latency;
+        this.payload = repositoriesPage(pageLength);
+    }
+
+    private static byte[] repositoriesPage(int pageLength) throws IOException {
+        List<Map<String, Object>> values = new ArrayList<>(pageLength);
+        for (int i = 0; i < pageLength; i++) {
+            Map<String, Object> repository = new LinkedHashMap<>();
+            repository.put("type", "repository");
+            repository.put("uuid", "{" + new UUID(0, i) + "}");
+            repository.put("slug", "repository-" + i);
+            repository.put("name", "Repository " + i);
+            repository.put("full_name", "workspace/repository-" + i);
+            repository.put("is_private", true);
+            repository.put("scm", "git");
+            repository.put("mainbranch", Map.of("type", "branch", "name", "master"));
+            values.add(repository);
+        }
+        Map<String, Object> page = new LinkedHashMap<>();
+        page.put("pagelen", pageLength);
+        page.put("size", pageLength);
+        page.put("page", 1);
+        page.put("values", values);
+        return new ObjectMapper().writeValueAsBytes(page);
+    }
+
+    /**
+     * Starts listening on a random local port.
+     *
+     * @return this server
+     * @throws IOException if the server could not be started
+     */
+    public TlsStubServer start() throws IOException {
+        try {
+            SSLContext sslContext = SSLContexts.custom() //
+                    .loadKeyMaterial(keystore(), KEYSTORE_PASSWORD, KEYSTORE_PASSWORD) //
+                    .build();
+            scheduler = Executors.newSingleThreadScheduledExecutor();
+            server = H2ServerBootstrap.bootstrap() //
+                    .setCanonicalHostName("localhost") //
+                    .setVersionPolicy(HttpVersionPolicy.NEGOTIATE) //
+                    .setTlsStrategy(new H2ServerTlsStrategy(sslContext)) //
+                    .register("*", new RepositoriesHandler()) //
+                    .create();
+            server.start();
+            ListenerEndpoint endpoint = server.listen(new InetSocketAddress("localhost", 0), URIScheme.HTTPS).get();
+            port = ((InetSocketAddress) endpoint.getAddress()).getPort();
+            return this;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    @Override
+    public void close() {
+        if (server != null) {
+            server.close(CloseMode.IMMEDIATE);
+        }
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private class RepositoriesHandler implements AsyncServerRequestHandler<Message<HttpRequest, Void>> {
+
+        @Override
+        public AsyncRequestConsumer<Message<HttpRequest, Void>> prepare(HttpRequest request, EntityDetails entityDetails, HttpContext context) {
+            return new BasicRequestConsumer<>(entityDetails != null ? new DiscardingEntityConsumer<>() : null);
+        }
+
+        @Override
+        public void handle(Message<HttpRequest, Void> message, ResponseTrigger responseTrigger, HttpContext context) {
+            scheduler.schedule(() -> {
+                try {
+                    responseTrigger.submitResponse(AsyncResponseBuilder.create(HttpStatus.SC_OK) //
+                            .setEntity(AsyncEntityProducers.create(payload, ContentType.APPLICATION_JSON)) //
+                            .build(), context);
+                } catch (HttpException | IOException e) {
+                    // the client has gone away, nothing to answer
+                }
+            }, latency, TimeUnit.MILLISECONDS);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2022 Falco Nikolas
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.nfalco79.bitbucket.client.benchmark;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hc.client5.http.ssl.ClientTlsStrategyBuilder;
+import org.apache.hc.client5.http.ssl.NoopHostnameVerifier;
+import org.apache.hc.core5.http.nio.ssl.TlsStrategy;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.nfalco79.bitbucket.client.BitbucketCloudAsyncClient;
+import com.github.nfalco79.bitbucket.client.BitbucketCloudClient;
+import com.github.nfalco79.bitbucket.client.Credentials.CredentialsBuilder;
+import com.github.nfalco79.bitbucket.client.TransportConfig;
+import com.github.nfalco79.bitbucket.client.model.Repository;
+
+/**
+ * Compares the HTTP/1.1 connection pool with the HTTP/2 multiplexed
+ * transport when many requests are in flight at the same time toward the
+ * same host.
+ * <p>
+ * Run with {@code java -jar target/benchmarks.jar TransportBenchmark}.
+ *
+ * @author Nikolas Falco
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransportBenchmark {
+
+    @Param({ "FORCE_HTTP_1", "FORCE_HTTP_2" })
+    public HttpVersionPolicy versionPolicy;
+
+    @Param({ "64" })
+    public int concurrency;
+
+    @Param({ "20" })
+    public long latency;
+
+    private TlsStubServer server;
+    private BitbucketCloudClient companion;
+    private BitbucketCloudAsyncClient client;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        server = new TlsStubServer(latency, 50).start();
+
+        TlsStrategy tlsStrategy = ClientTlsStrategyBuilder.create() //
+                .setSslContext(TlsStubServer.trustContext()) //
+                .setHostnameVerifier(NoopHostnameVerifier.INSTANCE) //
+                .buildAsync();
+        // both arms share pool size, timeouts and retry strategy of the
+        // transport, only the HTTP/2 one ignores the pool size because it
+        // multiplexes all requests over a single connection
+        TransportConfig transport = new TransportConfig().setApiURL("https://localhost:" + server.getPort());
+        companion = new BitbucketCloudClient(CredentialsBuilder.anonymous(), transport);
+        client = new BitbucketCloudAsyncClient(companion, versionPolicy) {
+            @Override
+            protected TlsStrategy buildTlsStrategy() {
+                // trusts the self signed certificate of the stub
+                return tlsStrategy;
+            }
+        };
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        client.close();
+        companion.close();
+        server.close();
+    }
+
+    @Benchmark
+    public List<Repository> concurrentRequests() {
+        @SuppressWarnings("unchecked")
+        CompletableFuture<List<Repository>>[] calls = new CompletableFuture[concurrency];
+        for (int i = 0; i < concurrency; i++) {
+            calls[i] = client.getRepositories("workspace");
+        }
+        CompletableFuture.allOf(calls).join();
+        return calls[concurrency - 1].join();
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2022 Falco Nikolas
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.nfalco79.bitbucket.client;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Outcome of an operation applied to many entries, each entry either
+ * succeeded with a result or failed with an exception.
+ * <p>
+ * A failure of one entry does not prevent the others to be processed.
+ *
+ * @author Nikolas Falco
+ * @param <R> the type of result of a single entry
+ */
+public class BatchResult<R> {
+
+    private final Map<String, R> results = new LinkedHashMap<>();
+    private final Map<String, Exception> failures = new LinkedHashMap<>();
+
+    /* package */ synchronized void success(String key, R result) {
+        results.put(key, result);
+    }
+
+    /* package */ synchronized void failure(String key, Exception failure) {
+        failures.put(key, failure);
+    }
+
+    /**
+     * Returns the result of all entries completed successfully.
+     *
+     * @return a map of result keyed by entry
+     */
+    public synchronized Map<String, R> getResults() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(results));
+    }
+
+    /**
+     * Returns the cause of all entries failed.
+     *
+     * @return a map of exception keyed by entry
+     */
+    public synchronized Map<String, Exception> getFailures() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(failures));
+    }
+
+    public synchronized boolean isSuccessful() {
+        return failures.isEmpty();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "succeeded: " + results.size() + ", failed: " + failures.keySet();
+    }
+}
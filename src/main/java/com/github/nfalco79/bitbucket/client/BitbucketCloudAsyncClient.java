@@ -0,0 +1,646 @@
+/*
+ * Copyright 2022 Falco Nikolas
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.nfalco79.bitbucket.client;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.apache.hc.client5.http.HttpRequestRetryStrategy;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.config.TlsConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpStatus;
+import org.apache.hc.core5.http.nio.ssl.TlsStrategy;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.io.CloseMode;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.github.nfalco79.bitbucket.client.internal.rest.BranchPermissionResponse;
+import com.github.nfalco79.bitbucket.client.internal.rest.CodeInsightsReportResponse;
+import com.github.nfalco79.bitbucket.client.internal.rest.GroupPermissionResponse;
+import com.github.nfalco79.bitbucket.client.internal.rest.PaginatedResponse;
+import com.github.nfalco79.bitbucket.client.internal.rest.PullRequestActivityResponse;
+import com.github.nfalco79.bitbucket.client.internal.rest.PullRequestCommitsResponse;
+import com.github.nfalco79.bitbucket.client.internal.rest.PullRequestResponse;
+import com.github.nfalco79.bitbucket.client.internal.rest.RepositoryResponse;
+import com.github.nfalco79.bitbucket.client.internal.rest.WebhookResponse;
+import com.github.nfalco79.bitbucket.client.model.Activity;
+import com.github.nfalco79.bitbucket.client.model.Approval;
+import com.github.nfalco79.bitbucket.client.model.BranchRestriction;
+import com.github.nfalco79.bitbucket.client.model.CodeInsightsReport;
+import com.github.nfalco79.bitbucket.client.model.Commit;
+import com.github.nfalco79.bitbucket.client.model.GroupInfo;
+import com.github.nfalco79.bitbucket.client.model.GroupPermission;
+import com.github.nfalco79.bitbucket.client.model.Permission;
+import com.github.nfalco79.bitbucket.client.model.PullRequest;
+import com.github.nfalco79.bitbucket.client.model.Repository;
+import com.github.nfalco79.bitbucket.client.model.UserInfo;
+import com.github.nfalco79.bitbucket.client.model.Webhook;
+
+/**
+ * Non blocking client of Bitbucket Cloud.
+ * <p>
+ * Every operation returns immediately a {@link CompletableFuture} completed
+ * by the I/O reactor when the response is available. Failures complete the
+ * future exceptionally with a {@link ClientException}.
+ * <p>
+ * The authentication, the dry run mode, the rate limit and the request setup
+ * are delegated to a companion {@link BitbucketCloudClient}, requests of both
+ * clients are accounted in the same rate limit of each credentials. The
+ * renewal of the OAuth2 access token, which requires a blocking request, and
+ * the requests delayed by the rate limit run on a separate
+ * {@link #setExecutor(Executor) executor}.
+ * <p>
+ * With {@link HttpVersionPolicy#FORCE_HTTP_2} all requests to the same host are
+ * multiplexed as concurrent streams over a single TLS connection.
+ *
+ * @author Nikolas Falco
+ */
+public class BitbucketCloudAsyncClient implements Closeable {
+
+    private final BitbucketCloudClient client;
+    private final boolean ownClient;
+    private final HttpVersionPolicy versionPolicy;
+    private final CloseableHttpAsyncClient asyncClient;
+    private volatile Executor executor;
+    private ExecutorService ownExecutor;
+
+    /**
+     * Create an asynchronous client for the given credentials.
+     *
+     * @param credentials the object containing the server info
+     */
+    public BitbucketCloudAsyncClient(Credentials credentials) {
+        this(credentials, HttpVersionPolicy.NEGOTIATE);
+    }
+
+    /**
+     * Create an asynchronous client for the given credentials that use the
+     * given HTTP protocol version.
+     *
+     * @param credentials the object containing the server info
+     * @param versionPolicy the HTTP protocol version to use
+     */
+    public BitbucketCloudAsyncClient(Credentials credentials, HttpVersionPolicy versionPolicy) {
+        this(new BitbucketCloudClient(credentials), true, versionPolicy);
+    }
+
+    /**
+     * Create an asynchronous client that shares authentication and
+     * configuration of the given client.
+     * <p>
+     * The given client is not closed by this client.
+     *
+     * @param client the companion synchronous client
+     */
+    public BitbucketCloudAsyncClient(BitbucketCloudClient client) {
+        this(client, HttpVersionPolicy.NEGOTIATE);
+    }
+
+    /**
+     * Create an asynchronous client that shares authentication and
+     * configuration of the given client and use the given HTTP protocol
+     * version.
+     * <p>
+     * The given client is not closed by this client.
+     *
+     * @param client the companion synchronous client
+     * @param versionPolicy the HTTP protocol version to use
+     */
+    public BitbucketCloudAsyncClient(BitbucketCloudClient client, HttpVersionPolicy versionPolicy) {
+        this(client, false, versionPolicy);
+    }
+
+    private BitbucketCloudAsyncClient(BitbucketCloudClient client, boolean ownClient, HttpVersionPolicy versionPolicy) {
+        this.client = client;
+        this.ownClient = ownClient;
+        this.versionPolicy = Objects.requireNonNull(versionPolicy);
+        this.ownExecutor = Executors.newCachedThreadPool(BitbucketCloudClient.daemonThreadFactory("bitbucket-async-"));
+        this.executor = ownExecutor;
+        this.asyncClient = buildClient();
+        this.asyncClient.start();
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Sets the executor of the blocking work, like the renewal of the OAuth2
+     * access token and the replay of requests rejected because of an expired
+     * token, that must not run on the I/O reactor threads. Requests delayed
+     * by the rate limit are sent by this executor too.
+     * <p>
+     * The given executor is not shut down by this client.
+     *
+     * @param executor the executor to use
+     */
+    public synchronized void setExecutor(Executor executor) {
+        this.executor = Objects.requireNonNull(executor);
+        if (ownExecutor != null) {
+            // tasks already submitted complete
+            ownExecutor.shutdown();
+            ownExecutor = null;
+        }
+    }
+
+    /**
+     * Returns the TLS setup of the connections.
+     *
+     * @return the TLS strategy, {@code null} to use the system defaults
+     */
+    protected TlsStrategy buildTlsStrategy() {
+        return null;
+    }
+
+    protected CloseableHttpAsyncClient buildClient() {
+        TransportConfig transport = client.getTransportConfig();
+        // 429 responses are left to the rate limiter
+        HttpRequestRetryStrategy retryStrategy = client.buildRetryStrategy();
+        TlsStrategy tlsStrategy = buildTlsStrategy();
+        if (versionPolicy == HttpVersionPolicy.FORCE_HTTP_2) {
+            // one connection per host, concurrent requests become streams
+            return HttpAsyncClients.customHttp2() //
+                    .setTlsStrategy(tlsStrategy) //
+                    .setDefaultRequestConfig(transport.requestConfig()) //
+                    .setRetryStrategy(retryStrategy) //
+                    .build();
+        }
+        return HttpAsyncClients.custom() //
+                .setConnectionManager(PoolingAsyncClientConnectionManagerBuilder.create() //
+                        .setMaxConnTotal(transport.getMaxTotal()) //
+                        .setMaxConnPerRoute(transport.getMaxPerRoute()) //
+                        .setDefaultConnectionConfig(transport.connectionConfig()) //
+                        .setDefaultTlsConfig(TlsConfig.custom().setVersionPolicy(versionPolicy).build()) //
+                        .setTlsStrategy(tlsStrategy) //
+                        .build()) //
+                .setDefaultRequestConfig(transport.requestConfig()) //
+                .setRetryStrategy(retryStrategy) //
+                .build();
+    }
+
+    public HttpVersionPolicy getVersionPolicy() {
+        return versionPolicy;
+    }
+
+    protected <T> CompletableFuture<T> process(SimpleHttpRequest request, Object type) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            client.rebase(request);
+        } catch (ClientException e) {
+            result.completeExceptionally(e);
+            return result;
+        }
+        send(request, type, false, 0, result);
+        return result;
+    }
+
+    /*
+     * Called also by the I/O reactor when a page completes, the token is
+     * renewed by the executor when required.
+     */
+    private <T> void send(SimpleHttpRequest request, Object type, boolean renewed, int rejections, CompletableFuture<T> result) {
+        Credentials credentials = client.selectCredentials(request);
+        CompletableFuture<String> token;
+        try {
+            token = client.accessToken(credentials, type, executor);
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(new ClientException("Client is closed", e));
+            return;
+        }
+        token.whenComplete((accessToken, error) -> {
+            if (error != null) {
+                result.completeExceptionally(error instanceof CompletionException ? error.getCause() : error);
+                return;
+            }
+            client.setupRequest(request, credentials);
+            if (client.isDryRun() && !"GET".equalsIgnoreCase(request.getMethod())) {
+                client.logger.info(request.getMethod() + " " + request.getRequestUri());
+                if (request.getBody() != null) {
+                    client.logger.info(request.getBody()::getBodyText);
+                }
+                result.complete(null);
+                return;
+            }
+            RateLimiter.Bucket bucket = client.getRateLimiter().bucket(credentials);
+            long wait = bucket.reserve();
+            // a token renewed once is not renewed again
+            Runnable task = () -> execute(request, type, credentials, renewed ? null : accessToken, bucket, rejections, result);
+            if (wait > 0) {
+                schedule(task, wait, result);
+            } else {
+                task.run();
+            }
+        });
+    }
+
+    /*
+     * Runs the task on the executor after the given delay, without keeping
+     * a thread busy meanwhile.
+     */
+    private void schedule(Runnable task, long delayNanos, CompletableFuture<?> result) {
+        Runnable submit = () -> {
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                result.completeExceptionally(new ClientException("Client is closed", e));
+            }
+        };
+        if (delayNanos > 0) {
+            CompletableFuture.delayedExecutor(delayNanos, TimeUnit.NANOSECONDS).execute(submit);
+        } else {
+            submit.run();
+        }
+    }
+
+    private <T> void execute(SimpleHttpRequest request, Object type, Credentials credentials, String accessToken, RateLimiter.Bucket bucket, int rejections, CompletableFuture<T> result) {
+        asyncClient.execute(request, new FutureCallback<SimpleHttpResponse>() {
+            @Override
+            public void completed(SimpleHttpResponse response) {
+                client.getRateLimiter().onResponse(bucket, response, rejections);
+                if (response.getCode() == HttpStatus.SC_TOO_MANY_REQUESTS && rejections < client.getMaxRateLimitRetries()) {
+                    // credentials are paused until the server accepts requests again
+                    send(request, type, accessToken == null, rejections + 1, result);
+                } else if (response.getCode() == HttpStatus.SC_NO_CONTENT) {
+                    result.complete(null);
+                } else if (response.getCode() >= HttpStatus.SC_OK && response.getCode() < 300) {
+                    byte[] content = response.getBodyBytes();
+                    try {
+                        result.complete(content == null ? null : client.readValue(new ByteArrayInputStream(content), type));
+                    } catch (IOException e) {
+                        result.completeExceptionally(new ClientException("Fail to deserialize response.", e));
+                    }
+                } else if (accessToken != null && response.getCode() == HttpStatus.SC_UNAUTHORIZED) {
+                    // token revoked or expired before than expected, do not block the I/O thread
+                    schedule(() -> {
+                        try {
+                            client.renewRejectedToken(credentials, accessToken, response.getCode());
+                            send(request, type, true, rejections, result);
+                        } catch (ClientException e) {
+                            result.completeExceptionally(e);
+                        }
+                    }, 0, result);
+                } else {
+                    result.completeExceptionally(new ClientException(response.getCode(), response.getBodyText()));
+                }
+            }
+
+            @Override
+            public void failed(Exception e) {
+                result.completeExceptionally(new ClientException("Client fails on URL " + request.getRequestUri(), e));
+            }
+
+            @Override
+            public void cancelled() {
+                result.cancel(false);
+            }
+        });
+    }
+
+    private <T> CompletableFuture<T> process(SimpleHttpRequest request) {
+        return process(request, null);
+    }
+
+    private <T> CompletableFuture<List<T>> getPaginated(String uri, Class<? extends PaginatedResponse<T>> type) {
+        return getPaginated(uri, type, new ArrayList<>());
+    }
+
+    /*
+     * Each page is requested when the previous one completes, no thread is
+     * blocked waiting the response.
+     */
+    private <T> CompletableFuture<List<T>> getPaginated(String uri, Class<? extends PaginatedResponse<T>> type, List<T> result) {
+        return this.<PaginatedResponse<T>> process(SimpleRequestBuilder.get(uri).build(), type) //
+                .thenCompose(page -> {
+                    result.addAll(page.getValues());
+                    if (page.getNext() == null) {
+                        return CompletableFuture.completedFuture(result);
+                    }
+                    return getPaginated(page.getNext(), type, result);
+                });
+    }
+
+    private SimpleHttpRequest withJSONBody(SimpleRequestBuilder builder, Object entity) throws ClientException {
+        try {
+            return builder.setBody(client.objectMapper.writeValueAsString(entity), ContentType.APPLICATION_JSON).build();
+        } catch (JsonProcessingException e) {
+            throw new ClientException("Fail to serialize " + entity.getClass().getSimpleName(), e);
+        }
+    }
+
+    /**
+     * Get logged user details
+     *
+     * @return a future of the user details
+     * @see BitbucketCloudClient#getUser()
+     */
+    public CompletableFuture<UserInfo> getUser() {
+        return process(SimpleRequestBuilder.get(client.loggedUserURI()).build(), UserInfo.class);
+    }
+
+    /**
+     * Get user details
+     *
+     * @param username the user UUID or the Atlassian account identifier.
+     * @return a future of the user details
+     * @see BitbucketCloudClient#getUser(String)
+     */
+    public CompletableFuture<UserInfo> getUser(String username) {
+        return process(SimpleRequestBuilder.get(client.userURI(username)).build(), UserInfo.class);
+    }
+
+    /**
+     * Get all repositories of given workspace for which this user have read
+     * access.
+     *
+     * @param workspace bitbucket workspace
+     * @return a future of the list of repositories
+     * @see BitbucketCloudClient#getRepositories(String)
+     */
+    public CompletableFuture<List<Repository>> getRepositories(String workspace) {
+        return getPaginated(client.repositoriesURI(workspace), RepositoryResponse.class);
+    }
+
+    /**
+     * Find groups which have access rights to the given repository.
+     *
+     * @param workspace name
+     * @param repository the repository name
+     * @return a future of the groups that have access right to the
+     *         repository, with their privilege
+     * @see BitbucketCloudClient#getGroupsPermissions(String, String)
+     */
+    public CompletableFuture<Map<GroupInfo, Permission>> getGroupsPermissions(String workspace, String repository) {
+        return getPaginated(client.groupPermissionURI(workspace, repository, null), GroupPermissionResponse.class) //
+                .thenApply(data -> data.stream() //
+                        .collect(Collectors.toMap(GroupPermission::getGroup, GroupPermission::getPermission)));
+    }
+
+    /**
+     * Grant access right to a group or update the current group's privilege to
+     * the given repository.
+     *
+     * @param workspace name
+     * @param repository the repository name
+     * @param groupSlug the group name
+     * @param accessLevel read, write or admin access level
+     * @return a future completed when the permission is updated
+     * @see BitbucketCloudClient#updateGroupPermission(String, String, String, Permission)
+     */
+    public CompletableFuture<Void> updateGroupPermission(String workspace, String repository, String groupSlug, Permission accessLevel) {
+        GroupPermission entity = new GroupPermission();
+        entity.setPermission(accessLevel);
+        try {
+            return process(withJSONBody(SimpleRequestBuilder.put(client.groupPermissionURI(workspace, repository, groupSlug)), entity));
+        } catch (ClientException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Delete group that shouldn't have any access right to the given
+     * repository.
+     *
+     * @param workspace name
+     * @param repository the repository name
+     * @param groupSlug the group slug name
+     * @return a future completed when the permission is removed
+     * @see BitbucketCloudClient#deleteGroupPermission(String, String, String)
+     */
+    public CompletableFuture<Void> deleteGroupPermission(String workspace, String repository, String groupSlug) {
+        return process(SimpleRequestBuilder.delete(client.groupPermissionURI(workspace, repository, groupSlug)).build());
+    }
+
+    /**
+     * Returns branch restriction for the given repository.
+     *
+     * @param workspace name
+     * @param repository the repository name
+     * @return a future of the list of branch restriction setup for this
+     *         repository
+     * @see BitbucketCloudClient#getBranchRestrictions(String, String)
+     */
+    public CompletableFuture<List<BranchRestriction>> getBranchRestrictions(String workspace, String repository) {
+        return getPaginated(client.branchRestrictionsURI(workspace, repository), BranchPermissionResponse.class);
+    }
+
+    /**
+     * Add or update the given branch permission for the specified repository.
+     *
+     * @param workspace bitbucket
+     * @param repository the repository name
+     * @param permission to add or update
+     * @return a future completed when the branch restriction is saved
+     * @see BitbucketCloudClient#updateBranchRestriction(String, String, BranchRestriction)
+     */
+    public CompletableFuture<Void> updateBranchRestriction(String workspace, String repository, BranchRestriction permission) {
+        String requestURI = client.branchRestrictionURI(workspace, repository, permission.getId());
+        SimpleRequestBuilder builder = permission.getId() != null ? SimpleRequestBuilder.put(requestURI) : SimpleRequestBuilder.post(requestURI);
+        try {
+            return process(withJSONBody(builder, permission));
+        } catch (ClientException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Gets all repository web hooks.
+     *
+     * @param workspace bitbucket
+     * @param repository the repository name
+     * @param hookName a filter based on partial match of the web hook name
+     * @return a future of the list of web hook
+     * @see BitbucketCloudClient#getWebhooks(String, String, String...)
+     */
+    public CompletableFuture<List<Webhook>> getWebhooks(String workspace, String repository, String... hookName) {
+        CompletableFuture<List<Webhook>> webhooks = getPaginated(client.webhooksURI(workspace, repository), WebhookResponse.class);
+        if (hookName != null && hookName.length > 0) {
+            return webhooks.thenApply(hooks -> hooks.stream() //
+                    .filter(hook -> Arrays.asList(hookName).contains(hook.getDescription())) //
+                    .toList());
+        }
+        return webhooks;
+    }
+
+    /**
+     * Creates a new web hook in the specified repository.
+     *
+     * @param workspace bitbucket
+     * @param repository the repository name
+     * @param webhook to create
+     * @return a future of the created web hook
+     * @see BitbucketCloudClient#addWebHook(String, String, Webhook)
+     */
+    public CompletableFuture<Webhook> addWebHook(String workspace, String repository, Webhook webhook) {
+        try {
+            return process(withJSONBody(SimpleRequestBuilder.post(client.webhookURI(workspace, repository, null)), webhook), Webhook.class);
+        } catch (ClientException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Updates web hook.
+     *
+     * @param workspace bitbucket
+     * @param repository the repository name
+     * @param webhook to update
+     * @return a future of the updated web hook
+     * @see BitbucketCloudClient#updateWebhook(String, String, Webhook)
+     */
+    public CompletableFuture<Webhook> updateWebhook(String workspace, String repository, Webhook webhook) {
+        try {
+            return process(withJSONBody(SimpleRequestBuilder.put(client.webhookURI(workspace, repository, webhook.getUUID())), webhook), Webhook.class);
+        } catch (ClientException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Deletes web hook.
+     *
+     * @param workspace bitbucket
+     * @param repository the repository name
+     * @param webhookId web hook identifier
+     * @return a future completed when the web hook is removed
+     * @see BitbucketCloudClient#deleteWebhook(String, String, String)
+     */
+    public CompletableFuture<Void> deleteWebhook(String workspace, String repository, String webhookId) {
+        return process(SimpleRequestBuilder.delete(client.webhookURI(workspace, repository, webhookId)).build());
+    }
+
+    /**
+     * Gets all pull request of specified repository.
+     *
+     * @param workspace bitbucket
+     * @param repository the repository name
+     * @return a future of the list of pull requests
+     * @see BitbucketCloudClient#getPullRequests(String, String)
+     */
+    public CompletableFuture<List<PullRequest>> getPullRequests(String workspace, String repository) {
+        return getPaginated(client.pullRequestsURI(workspace, repository), PullRequestResponse.class);
+    }
+
+    /**
+     * Gets the pull request matching the identifier for the given repository.
+     *
+     * @param workspace bitbucket
+     * @param repository the repository name
+     * @param prId the pull request identifier
+     * @return a future of the pull requests matching the given identifier
+     * @see BitbucketCloudClient#getPullRequest(String, String, int)
+     */
+    public CompletableFuture<PullRequest> getPullRequest(String workspace, String repository, int prId) {
+        return process(SimpleRequestBuilder.get(client.pullRequestURI(workspace, repository, prId)).build(), PullRequest.class);
+    }
+
+    /**
+     * Gets all pull request approval for the specified pull request.
+     *
+     * @param workspace bitbucket
+     * @param repository the repository name
+     * @param prId pull request identifier
+     * @return a future of the list user approvals
+     * @see BitbucketCloudClient#getPullRequestApprovals(String, String, int)
+     */
+    public CompletableFuture<List<Approval>> getPullRequestApprovals(String workspace, String repository, int prId) {
+        return getPaginated(client.pullRequestApprovalsURI(workspace, repository, prId), PullRequestActivityResponse.class) //
+                .thenApply(activities -> activities.stream() //
+                        .map(Activity::getApproval) //
+                        .filter(Objects::nonNull) //
+                        .toList());
+    }
+
+    /**
+     * Gets commits for the specified pull request identifier.
+     *
+     * @param workspace name
+     * @param repository name
+     * @param prId pull request identifier
+     * @param light enable or not a lightweight information for commits
+     * @return a future of the list of pull request commits
+     * @see BitbucketCloudClient#getPullRequestCommits(String, String, int, boolean)
+     */
+    public CompletableFuture<List<Commit>> getPullRequestCommits(String workspace, String repository, int prId, boolean light) {
+        return getPaginated(client.pullRequestCommitsURI(workspace, repository, prId, light), PullRequestCommitsResponse.class);
+    }
+
+    /**
+     * Gets code insights provides reports of a given commit commit.
+     *
+     * @param workspace name
+     * @param repository name
+     * @param hash of commit
+     * @return a future of the list of reports
+     * @see BitbucketCloudClient#getCodeInsightsReports(String, String, String)
+     */
+    public CompletableFuture<List<CodeInsightsReport>> getCodeInsightsReports(String workspace, String repository, String hash) {
+        return getPaginated(client.codeInsightsReportsURI(workspace, repository, hash), CodeInsightsReportResponse.class);
+    }
+
+    /**
+     * Approve or disapprove the specified pull request.
+     *
+     * @param workspace bitbucket
+     * @param repository the repository name
+     * @param prId pull request identifier
+     * @param approval if approve or not
+     * @return a future completed when the approval is updated
+     * @see BitbucketCloudClient#setPullRequestApproval(String, String, int, boolean)
+     */
+    public CompletableFuture<Void> setPullRequestApproval(String workspace, String repository, int prId, boolean approval) {
+        String requestURI = client.pullRequestApprovalURI(workspace, repository, prId);
+        if (approval) {
+            return process(SimpleRequestBuilder.post(requestURI).build());
+        } else {
+            return process(SimpleRequestBuilder.delete(requestURI).build());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        asyncClient.close(CloseMode.GRACEFUL);
+        synchronized (this) {
+            if (ownExecutor != null) {
+                ownExecutor.shutdownNow();
+            }
+        }
+        if (ownClient) {
+            client.close();
+        }
+    }
+
+}
@@ -18,16 +18,54 @@ package com.github.nfalco79.bitbucket.client;
 import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
 import java.io.IOException;
-import java.time.LocalDateTime;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import javax.net.ssl.SSLException;
+
+import org.apache.hc.client5.http.HttpRequestRetryStrategy;
 import org.apache.hc.client5.http.classic.methods.HttpDelete;
 import org.apache.hc.client5.http.classic.methods.HttpGet;
 import org.apache.hc.client5.http.classic.methods.HttpPost;
@@ -37,27 +75,43 @@ import org.apache.hc.client5.http.classic.methods.HttpUriRequestBase;
 import org.apache.hc.client5.http.entity.UrlEncodedFormEntity;
 import org.apache.hc.client5.http.impl.DefaultHttpRequestRetryStrategy;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClientBuilder;
 import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.ConnectionClosedException;
+import org.apache.hc.core5.http.Header;
 import org.apache.hc.core5.http.HttpEntity;
 import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.HttpResponse;
 import org.apache.hc.core5.http.HttpStatus;
+import org.apache.hc.core5.http.NameValuePair;
 import org.apache.hc.core5.http.io.HttpClientResponseHandler;
 import org.apache.hc.core5.http.io.entity.StringEntity;
 import org.apache.hc.core5.http.message.BasicNameValuePair;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.net.URIBuilder;
+import org.apache.hc.core5.pool.PoolStats;
 import org.apache.hc.core5.util.TimeValue;
 
 import com.damnhandy.uri.template.UriTemplate;
-import com.damnhandy.uri.template.UriTemplateBuilder;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.github.nfalco79.bitbucket.client.Credentials.CredentialsBuilder;
 import com.github.nfalco79.bitbucket.client.Credentials.OAuth2Consumer;
 import com.github.nfalco79.bitbucket.client.internal.rest.BranchPermissionResponse;
 import com.github.nfalco79.bitbucket.client.internal.rest.CodeInsightsReportResponse;
 import com.github.nfalco79.bitbucket.client.internal.rest.GroupPermissionResponse;
+import com.github.nfalco79.bitbucket.client.internal.rest.PageReader;
 import com.github.nfalco79.bitbucket.client.internal.rest.PaginatedResponse;
 import com.github.nfalco79.bitbucket.client.internal.rest.PullRequestActivityResponse;
 import com.github.nfalco79.bitbucket.client.internal.rest.PullRequestCommitsResponse;
@@ -101,8 +155,11 @@ public class BitbucketCloudClient implements Closeable {
 //    private static final String QUERY_PARAM_TERM = "term";
 //    private static final String QUERY_PARAM_HAS_ACCESS = "hasAccess";
     private static final String QUERY_PARAM_PAGELEN = "pagelen";
+    private static final String QUERY_PARAM_PAGE = "page";
+    private static final String METRICS_ATTRIBUTE = "bitbucket.metrics";
     private static final String QUERY_PARAM_QUERY = "q";
     private static final String QUERY_PARAM_FIELDS = "fields";
+    private static final String QUERY_PARAM_SORT = "sort";
 
     private static final String FORM_PARAM_GRANT_TYPE = "grant_type";
     private static final String FORM_PARAM_REFRESH_TOKEN = "refresh_token";
@@ -112,14 +169,15 @@ public class BitbucketCloudClient implements Closeable {
     private static final String GRANT_TYPE_REFRESH = "refresh_token";
 
     private static final String DEFAULT_PAGE_LEN = "100";
+    private static final Fields LIGHT_COMMIT = Fields.all().exclude("links", "repository", "parents.links");
 
     // deprecated 1.0 API not available in 2.0
-    private static final String API_V1 = "https://api.bitbucket.org/1.0";
+    private static final String API_V1 = TransportConfig.DEFAULT_API_URL + "/1.0";
     private static final String WORKSPACE_GROUP = API_V1 + "/groups/{workspace}";
 
     // REST 2.0 APIs
-    private static final String OAUTH2 = "https://bitbucket.org/site/oauth2/access_token";
-    private static final String API_V2 = "https://api.bitbucket.org/2.0";
+    private static final String OAUTH2 = TransportConfig.DEFAULT_SITE_URL + "/site/oauth2/access_token";
+    private static final String API_V2 = TransportConfig.DEFAULT_API_URL + "/2.0";
     private static final String WORKSPACE = API_V2 + "/workspaces/{workspace}";
     private static final String PERMISSIONS = WORKSPACE + "/permissions/repositories/{repository}";
 
@@ -143,14 +201,32 @@ public class BitbucketCloudClient implements Closeable {
 
     protected final Logger logger = Logger.getLogger("BitcketCloudClient");
 
-    private Credentials credentials;
+    private volatile CredentialsPool credentialsPool;
     private int retry = 3;
     private boolean dryRun;
-    private AuthToken authToken;
-    private LocalDateTime tokenExpiration;
+    private int pageConcurrency = 1;
+    private ExecutorService pageExecutor;
+    private Duration tokenRefreshSkew = Duration.ofMinutes(1);
+    private volatile Map<Credentials, TokenManager> tokenManagers = Collections.emptyMap();
     private transient UserInfo loggedUser;
+    private volatile ResponseCache responseCache;
+    private final OperationCache operationCache;
+    private volatile boolean coalesceRequests;
+    private final Map<List<Object>, CompletableFuture<Object>> inFlightRequests = new ConcurrentHashMap<>();
+    private final RateLimiter rateLimiter = new RateLimiter();
+    private volatile MetricsListener metricsListener = MetricsListener.NOOP;
+    private final TransferStatistics transferStatistics = new TransferStatistics(Arrays.asList(WORKSPACE_GROUP, //
+            WORKSPACE, PERMISSIONS, WORKSPACE_REPOSITORY, REPOSITORY, REPOSITORY_USER_PERMISSION, //
+            REPOSITORY_GROUP_PERMISSION, REPOSITORY_BRANCH_RESTRICTIONS, REPOSITORY_WEBHOOKS, //
+            REPOSITORY_PRS, REPOSITORY_PR, REPOSITORY_PR_ACTIVITY, REPOSITORY_PR_APPROVE, //
+            REPOSITORY_PR_COMMITS, COMMIT_CODE_INSIGHTS_REPORTS, LOGGED_USER, //
+            LOGGED_USER_PERMISSIONS, USER_INFO, OAUTH2));
+    private int maxRateLimitRetries = 5;
+    private final TransportConfig transport;
+    private PoolingHttpClientConnectionManager connectionManager;
     private CloseableHttpClient client;
     protected ObjectMapper objectMapper;
+    private final Map<Class<?>, ObjectReader> elementReaders = new ConcurrentHashMap<>();
 
     /**
      * BBClient constructor which requires server info.
@@ -158,87 +234,539 @@ public class BitbucketCloudClient implements Closeable {
      * @param credentials the object containing the server info
      */
     public BitbucketCloudClient(Credentials credentials) {
-        this.credentials = credentials == null ? CredentialsBuilder.anonymous() : credentials;
+        this(credentials, new TransportConfig());
+    }
+
+    /**
+     * BBClient constructor which requires server info and the connection
+     * pool and timeouts to use.
+     *
+     * @param credentials the object containing the server info
+     * @param transport the HTTP transport configuration
+     */
+    public BitbucketCloudClient(Credentials credentials, TransportConfig transport) {
+        this(new CredentialsPool(credentials == null ? CredentialsBuilder.anonymous() : credentials), transport);
+    }
+
+    /**
+     * BBClient constructor which spreads requests over a pool of
+     * credentials.
+     *
+     * @param credentialsPool the credentials to use in turn
+     * @param transport the HTTP transport configuration
+     */
+    public BitbucketCloudClient(CredentialsPool credentialsPool, TransportConfig transport) {
+        this.credentialsPool = Objects.requireNonNull(credentialsPool);
+        this.transport = Objects.requireNonNull(transport);
         objectMapper = buildJSONConverter();
+        operationCache = new OperationCache(objectMapper);
+        connectionManager = buildConnectionManager();
         client = buildClient();
         buildAuthentication();
     }
 
     public void setCredentials(Credentials credentials) {
-        this.credentials = credentials;
-        authToken = null;
-        tokenExpiration = null;
+        setCredentialsPool(new CredentialsPool(credentials));
+    }
+
+    public CredentialsPool getCredentialsPool() {
+        return credentialsPool;
+    }
+
+    /**
+     * Replaces the credentials used by this client.
+     *
+     * @param credentialsPool the credentials to use in turn
+     */
+    public void setCredentialsPool(CredentialsPool credentialsPool) {
+        this.credentialsPool = Objects.requireNonNull(credentialsPool);
+        if (responseCache != null) {
+            // cached responses depend on the user permissions
+            responseCache.clear();
+        }
+        operationCache.clear();
         buildAuthentication();
     }
 
     private void buildAuthentication() {
-        if (hasOAuth()) {
-            LocalDateTime now = LocalDateTime.now();
+        Map<Credentials, TokenManager> managers = new IdentityHashMap<>();
+        for (Credentials credentials : credentialsPool.getCredentials()) {
+            if (credentials instanceof OAuth2Consumer) {
+                OAuth2Consumer consumer = (OAuth2Consumer) credentials;
+                managers.put(consumer, new TokenManager(consumer, current -> {
+                    AuthToken token = requestToken(consumer, current);
+                    metricsListener.onTokenGranted(current != null);
+                    return token;
+                }, tokenRefreshSkew));
+            }
+        }
+        tokenManagers = managers;
+        for (TokenManager manager : managers.values()) {
             try {
-                authToken = getOAuthToken();
-                tokenExpiration = now.plusSeconds(authToken.getExpiry());
-                ((OAuth2Consumer) credentials).setToken(authToken.getAccessToken());
+                manager.accessToken();
             } catch (ClientException e) {
                 logger.log(Level.SEVERE, "Fail to acquire OAuth2 access token", e);
             }
         }
     }
 
+    public Duration getTokenRefreshSkew() {
+        return tokenRefreshSkew;
+    }
+
+    /**
+     * Sets how long before its expiration the OAuth2 access token is
+     * renewed.
+     * <p>
+     * Requests issued while the token is renewed wait for the new one.
+     *
+     * @param tokenRefreshSkew the time before the token expiration
+     */
+    public void setTokenRefreshSkew(Duration tokenRefreshSkew) {
+        this.tokenRefreshSkew = Objects.requireNonNull(tokenRefreshSkew);
+        tokenManagers.values().forEach(manager -> manager.setSkew(tokenRefreshSkew));
+    }
+
+    /*
+     * Token requests are authenticated by the consumer that owns the token,
+     * the others by the next credentials of the pool.
+     */
+    /* package */ Credentials selectCredentials(HttpRequest request) {
+        if (request instanceof TokenRequest) {
+            return ((TokenRequest) request).consumer;
+        }
+        return credentialsPool.next(rateLimiter);
+    }
+
+    /*
+     * Returns the access token the request will be sent with, null when the
+     * credentials does not use OAuth2 or the request asks for a token.
+     */
+    /* package */ String accessToken(Credentials credentials, Object type) throws ClientException {
+        TokenManager manager = tokenManagers.get(credentials);
+        return manager != null && type != AuthToken.class ? manager.accessToken() : null;
+    }
+
+    /*
+     * Returns immediately the access token when valid, otherwise it is
+     * renewed by the given executor, that the caller thread never blocks.
+     */
+    /* package */ CompletableFuture<String> accessToken(Credentials credentials, Object type, Executor executor) {
+        TokenManager manager = tokenManagers.get(credentials);
+        String valid = manager != null && type != AuthToken.class ? manager.validToken() : null;
+        if (manager == null || type == AuthToken.class || valid != null) {
+            return CompletableFuture.completedFuture(valid);
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return manager.accessToken();
+            } catch (ClientException e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    /*
+     * Renews the token when it has been rejected, then the request can be
+     * sent again.
+     */
+    /* package */ boolean renewRejectedToken(Credentials credentials, String accessToken, int status) throws ClientException {
+        TokenManager manager = tokenManagers.get(credentials);
+        if (manager == null || accessToken == null || status != HttpStatus.SC_UNAUTHORIZED) {
+            return false;
+        }
+        manager.rejected(accessToken);
+        return true;
+    }
+
+    /*
+     * Template of the endpoint of the given URI, also when the requests are
+     * sent to a base URL with a context path.
+     */
+    private String endpoint(String uri) {
+        return transferStatistics.endpoint(uri, transport.getApiURL(), transport.getSiteURL());
+    }
+
     private <T> List<T> getPaginated(String uri, Class<? extends PaginatedResponse<T>> type) throws ClientException {
+        PageEvent event = new PageEvent();
+        event.begin();
+        String endpoint = endpoint(uri);
         List<T> result = new ArrayList<>();
+        PaginatedResponse<T> page = getPage(uri, type, result::add);
+        int pages = 1;
+        if (pageConcurrency > 1) {
+            List<String> pageURIs = getPageURIs(page);
+            if (!pageURIs.isEmpty()) {
+                page = getPagesConcurrently(pageURIs, type, result);
+                pages += pageURIs.size();
+            }
+        }
+        // follow next link of last page, also when the collection grow meanwhile
+        uri = page.getNext();
         while (uri != null) {
-            PaginatedResponse<T> page = process(new HttpGet(uri), type);
+            page = getPage(uri, type, result::add);
             uri = page.getNext();
-            result.addAll(page.getValues());
+            pages++;
         }
+        metricsListener.onPaginatedCall(endpoint, pages, result.size());
+        event.commit(endpoint, pages, result.size());
         return result;
     }
 
-    @SuppressWarnings("unchecked")
+    /*
+     * Elements are bound while the response is read and passed to the
+     * consumer, the returned page contains only the pagination details.
+     */
+    private <T> PaginatedResponse<T> getPage(String uri, Class<? extends PaginatedResponse<T>> type, Consumer<? super T> consumer) throws ClientException {
+        ObjectReader elementReader = elementReaders.computeIfAbsent(type, pageType -> {
+            JavaType[] parameters = objectMapper.getTypeFactory().constructType(pageType).findTypeParameters(PaginatedResponse.class);
+            return objectMapper.readerFor(parameters[0]);
+        });
+        return process(new HttpGet(uri), new PageReader<T>(elementReader, consumer));
+    }
+
+    private <T> PaginatedResponse<T> getBufferedPage(String uri, Class<? extends PaginatedResponse<T>> type) throws ClientException {
+        List<T> values = new ArrayList<>();
+        PaginatedResponse<T> page = getPage(uri, type, values::add);
+        page.setValues(values);
+        return page;
+    }
+
+    /*
+     * Compute the URIs of all remaining pages when the response declares the
+     * total number of elements and uses numeric page, otherwise returns an
+     * empty list and pages are requested following the next link.
+     */
+    private List<String> getPageURIs(PaginatedResponse<?> response) {
+        Integer page = response.getPage();
+        Integer size = response.getSize();
+        Integer pagelen = response.getPagelen();
+        if (response.getNext() == null || page == null || size == null || pagelen == null || pagelen <= 0) {
+            return Collections.emptyList();
+        }
+        try {
+            URIBuilder builder = new URIBuilder(response.getNext());
+            NameValuePair nextPage = builder.getFirstQueryParam(QUERY_PARAM_PAGE);
+            if (nextPage == null || !String.valueOf(page + 1).equals(nextPage.getValue())) {
+                return Collections.emptyList();
+            }
+            int lastPage = (size + pagelen - 1) / pagelen;
+            List<String> uris = new ArrayList<>();
+            for (int i = page + 1; i <= lastPage; i++) {
+                uris.add(builder.setParameter(QUERY_PARAM_PAGE, String.valueOf(i)).build().toString());
+            }
+            return uris;
+        } catch (URISyntaxException e) {
+            return Collections.emptyList();
+        }
+    }
+
+    /*
+     * At most page concurrency pages are in flight, the next one is requested
+     * when the oldest completes.
+     */
+    private <T> PaginatedResponse<T> getPagesConcurrently(List<String> uris, Class<? extends PaginatedResponse<T>> type, List<T> result) throws ClientException {
+        ExecutorService executor;
+        int window;
+        synchronized (this) {
+            executor = getPageExecutor();
+            window = pageConcurrency;
+        }
+        Iterator<String> pageURIs = uris.iterator();
+        Deque<Future<PaginatedResponse<T>>> pages = new ArrayDeque<>(window);
+        PaginatedResponse<T> page = null;
+        try {
+            while (pageURIs.hasNext() && pages.size() < window) {
+                String uri = pageURIs.next();
+                pages.add(executor.submit(() -> getBufferedPage(uri, type)));
+            }
+            // collect in submission order to preserve the server order
+            while (!pages.isEmpty()) {
+                page = pages.poll().get();
+                result.addAll(page.getValues());
+                if (pageURIs.hasNext()) {
+                    String uri = pageURIs.next();
+                    pages.add(executor.submit(() -> getBufferedPage(uri, type)));
+                }
+            }
+            return page;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ClientException("Interrupted while waiting pages", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ClientException) {
+                throw (ClientException) e.getCause();
+            }
+            throw new ClientException("Fail to get page", e.getCause());
+        } finally {
+            pages.forEach(future -> future.cancel(true));
+        }
+    }
+
+    /*
+     * Idle threads terminate, so an executor replaced by a new one drains
+     * the submitted pages and then is collected.
+     */
+    private synchronized ExecutorService getPageExecutor() {
+        if (pageExecutor == null) {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(pageConcurrency, pageConcurrency, 30, TimeUnit.SECONDS, //
+                    new LinkedBlockingQueue<>(), daemonThreadFactory("bitbucket-page-"));
+            executor.allowCoreThreadTimeOut(true);
+            pageExecutor = executor;
+        }
+        return pageExecutor;
+    }
+
+    /* package */ static ThreadFactory daemonThreadFactory(String prefix) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /*
+     * Virtual threads are available since Java 21, on older runtime falls
+     * back to a pool of platform threads.
+     */
+    private static ExecutorService newTaskExecutor(String prefix, int threads) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(threads, daemonThreadFactory(prefix));
+        }
+    }
+
+    private <T> Stream<T> streamPaginated(String uri, Class<? extends PaginatedResponse<T>> type) {
+        return new PageIterator<T>(uri, next -> getBufferedPage(next, type)).stream();
+    }
+
     protected <T> T process(HttpUriRequest request, Object type) throws ClientException {
+        rebase(request);
         try {
-            setupRequest(request);
-            if (isDryRun() && !"GET".equalsIgnoreCase(request.getMethod())) {
-                logger.info(request.getMethod() + " " + request.getRequestUri());
-                ByteArrayOutputStream payload = new ByteArrayOutputStream();
-                request.getEntity().writeTo(payload);
-                logger.info(payload::toString);
-                return null;
-            } else {
-                HttpClientResponseHandler<? extends T> responseHandler = response -> {
-                    if (response.getCode() == HttpStatus.SC_NO_CONTENT) {
-                        return null;
-                    } else if (response.getCode() >= HttpStatus.SC_OK //
-                            && response.getCode() < 300) {
-                        try {
-                            if (type instanceof Class) {
-                                return objectMapper.readValue(response.getEntity().getContent(), (Class<T>) type);
-                            } else if (type instanceof TypeReference) {
-                                return objectMapper.readValue(response.getEntity().getContent(), (TypeReference<T>) type);
-                            } else {
-                                return null;
-                            }
-                        } catch (UnsupportedOperationException | IOException e) {
-                            throw new ClientException("Fail to deserialize response.", e);
-                        }
-                    } else if (response.getCode() == HttpStatus.SC_UNAUTHORIZED && isTokenExpired()) {
-                        authToken = refreshToken();
-                        tokenExpiration = LocalDateTime.now().plusSeconds(authToken.getExpiry());
-                    } else if (response.getCode() >= HttpStatus.SC_BAD_REQUEST //
-                            && response.getCode() < HttpStatus.SC_SERVER_ERROR //
-                            && response.getCode() != HttpStatus.SC_CONFLICT) { // conflict
-                        throw new ClientException(response);
+            boolean renewed = false;
+            int rejections = 0;
+            while (true) {
+                Credentials selected = selectCredentials(request);
+                String accessToken = accessToken(selected, type);
+                setupRequest(request, selected);
+                // tokens are required by the read requests also in dry run
+                if (isDryRun() && !"GET".equalsIgnoreCase(request.getMethod()) && !(request instanceof TokenRequest)) {
+                    logger.info(request.getMethod() + " " + request.getRequestUri());
+                    if (request.getEntity() != null) {
+                        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+                        request.getEntity().writeTo(payload);
+                        logger.info(payload::toString);
                     }
-                    throw new ClientException(response);
-                };
-
-                return client.execute(request, responseHandler);
+                    return null;
+                }
+                try {
+                    return send(request, type, selected, rejections);
+                } catch (ClientException e) {
+                    if (!renewed && renewRejectedToken(selected, accessToken, e.getStatus())) {
+                        // token revoked or expired before than expected
+                        renewed = true;
+                    } else if (e.getStatus() == HttpStatus.SC_TOO_MANY_REQUESTS && rejections < maxRateLimitRetries) {
+                        // credentials are paused until the server accepts requests again
+                        rejections++;
+                        logger.log(Level.FINE, "Rate limit exceeded on {0}, retry attempt {1}", new Object[] { request.getRequestUri(), rejections });
+                    } else {
+                        throw e;
+                    }
+                    metricsListener.onRetry(endpoint(request.getRequestUri()), request.getMethod(), e.getStatus());
+                }
             }
         } catch (IOException e) {
             throw new ClientException("Client fails on URL " + request.getRequestUri(), e);
         }
     }
 
+    private <T> T send(HttpUriRequest request, Object type, Credentials credentials, int rejections) throws IOException {
+        if (coalesceRequests && "GET".equalsIgnoreCase(request.getMethod())) {
+            return coalesce(request, type, credentials, rejections);
+        } else {
+            return execute(request, type, credentials, rejections);
+        }
+    }
+
+    private <T> T execute(HttpUriRequest request, Object type, Credentials credentials, int rejections) throws IOException {
+        ResponseCache cache = responseCache;
+        String cacheKey = cache != null && "GET".equalsIgnoreCase(request.getMethod()) ? ResponseCache.key(credentials, request.getRequestUri(), type) : null;
+        ResponseCache.Entry cached = cacheKey != null ? cache.get(cacheKey) : null;
+        if (cached != null) {
+            cached.applyConditions(request);
+        }
+        if (transport.isCompression()) {
+            addHeader(request, HttpHeaders.ACCEPT_ENCODING, TransferStatistics.ACCEPT_ENCODING);
+        }
+        String endpoint = endpoint(request.getRequestUri());
+        RateLimiter.Bucket bucket = rateLimiter.bucket(credentials);
+        try {
+            bucket.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ClientException("Interrupted while waiting the rate limit", e);
+        }
+        HttpEntity body = request.getEntity();
+        RequestMetrics metrics = new RequestMetrics(endpoint, request.getMethod(), rejections, body != null ? body.getContentLength() : 0);
+        HttpClientContext context = HttpClientContext.create();
+        // read by the retry strategy
+        context.setAttribute(METRICS_ATTRIBUTE, metrics);
+        RequestEvent event = new RequestEvent();
+        event.begin();
+        try {
+            return client.execute(request, context, this.<T> responseHandler(type, cache, cacheKey, cached, bucket, rejections, metrics));
+        } finally {
+            metrics.completed();
+            metricsListener.onRequest(metrics);
+            event.commit(metrics);
+        }
+    }
+
+    private <T> HttpClientResponseHandler<? extends T> responseHandler(Object type, ResponseCache cache, String cacheKey, ResponseCache.Entry cached, RateLimiter.Bucket bucket, int attempt, RequestMetrics metrics) {
+        return response -> {
+            metrics.responded(response.getCode());
+            rateLimiter.onResponse(bucket, response, attempt);
+            if (response.getEntity() != null) {
+                // decoded here to account the bytes received
+                response.setEntity(transferStatistics.wrap(response.getEntity(), metrics.getEndpoint(), metrics.bytesIn));
+            }
+            if (response.getCode() == HttpStatus.SC_NOT_MODIFIED && cached != null) {
+                cache.hit();
+                long binding = System.nanoTime();
+                try {
+                    return cached.value(type);
+                } finally {
+                    metrics.bound(System.nanoTime() - binding);
+                }
+            } else if (response.getCode() == HttpStatus.SC_NO_CONTENT) {
+                return null;
+            } else if (response.getCode() >= HttpStatus.SC_OK //
+                    && response.getCode() < 300) {
+                long binding = System.nanoTime();
+                try {
+                    if (cacheKey != null) {
+                        cache.miss();
+                        return readAndCache(response, type, cache, cacheKey);
+                    }
+                    return readValue(response.getEntity().getContent(), type);
+                } catch (UnsupportedOperationException | IOException e) {
+                    throw new ClientException("Fail to deserialize response.", e);
+                } finally {
+                    metrics.bound(System.nanoTime() - binding);
+                }
+            } else if (response.getCode() >= HttpStatus.SC_BAD_REQUEST //
+                    && response.getCode() < HttpStatus.SC_SERVER_ERROR //
+                    && response.getCode() != HttpStatus.SC_CONFLICT) { // conflict
+                throw new ClientException(response);
+            }
+            throw new ClientException(response);
+        };
+    }
+
+    /*
+     * The first caller executes the request, the others wait and share its
+     * result. Page elements are recorded to be replayed to each reader.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T coalesce(HttpUriRequest request, Object type, Credentials credentials, int rejections) throws IOException {
+        String typeKey = ResponseCache.key(request.getRequestUri(), type);
+        if (typeKey == null) {
+            return execute(request, type, credentials, rejections);
+        }
+        // credentials of a pool are interchangeable
+        List<Object> key = Arrays.asList(credentialsPool, typeKey);
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> leader = inFlightRequests.putIfAbsent(key, flight);
+        if (leader != null) {
+            try {
+                return ResponseCache.valueFor(leader.get(), type);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ClientException("Interrupted while waiting the response of " + request.getRequestUri(), e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new ClientException("Client fails on URL " + request.getRequestUri(), e.getCause());
+            }
+        }
+        try {
+            T value;
+            if (type instanceof PageReader) {
+                List<Object> values = new ArrayList<>();
+                PaginatedResponse<?> page = execute(request, ((PageReader<?>) type).andThen(values::add), credentials, rejections);
+                flight.complete(page != null ? ResponseCache.snapshot(page, values) : null);
+                value = (T) page;
+            } else {
+                value = execute(request, type, credentials, rejections);
+                flight.complete(value);
+            }
+            return value;
+        } catch (IOException | RuntimeException e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightRequests.remove(key, flight);
+        }
+    }
+
+    /*
+     * Only responses with a validator are retained, without it a conditional
+     * request is not possible.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T readAndCache(ClassicHttpResponse response, Object type, ResponseCache cache, String cacheKey) throws IOException {
+        String etag = getHeaderValue(response, HttpHeaders.ETAG);
+        String lastModified = getHeaderValue(response, HttpHeaders.LAST_MODIFIED);
+        if (etag == null && lastModified == null) {
+            cache.remove(cacheKey);
+            return readValue(response.getEntity().getContent(), type);
+        }
+        Object value;
+        if (type instanceof PageReader) {
+            List<Object> values = new ArrayList<>();
+            PaginatedResponse<?> page = readValue(response.getEntity().getContent(), ((PageReader<?>) type).andThen(values::add));
+            value = ResponseCache.snapshot(page, values);
+            cache.put(cacheKey, new ResponseCache.Entry(etag, lastModified, value));
+            return (T) page;
+        }
+        value = readValue(response.getEntity().getContent(), type);
+        cache.put(cacheKey, new ResponseCache.Entry(etag, lastModified, value));
+        return (T) value;
+    }
+
+    private String getHeaderValue(HttpResponse response, String name) {
+        Header header = response.getFirstHeader(name);
+        return header != null ? header.getValue() : null;
+    }
+
+    /**
+     * Deserialise the response content into the given type.
+     *
+     * @param <T> the type of returned object
+     * @param content the response content
+     * @param type a {@link Class}, a {@link TypeReference} or a
+     *        {@link PageReader} that decodes a paginated response
+     * @return the deserialised object or {@code null} for unsupported types
+     * @throws IOException in case of malformed content or I/O failure
+     */
+    @SuppressWarnings("unchecked")
+    protected <T> T readValue(InputStream content, Object type) throws IOException {
+        if (type instanceof Class) {
+            return objectMapper.readValue(content, (Class<T>) type);
+        } else if (type instanceof TypeReference) {
+            return objectMapper.readValue(content, (TypeReference<T>) type);
+        } else if (type instanceof PageReader) {
+            try (JsonParser parser = objectMapper.createParser(content)) {
+                return (T) ((PageReader<?>) type).read(parser);
+            }
+        } else {
+            return null;
+        }
+    }
+
     private <T> T process(HttpUriRequest request) throws ClientException {
         return process(request, null);
     }
@@ -251,7 +779,7 @@ public class BitbucketCloudClient implements Closeable {
      *         than 20x codes
      */
     public UserInfo getUser() throws ClientException {
-        return process(new HttpGet(LOGGED_USER), UserInfo.class);
+        return process(new HttpGet(loggedUserURI()), UserInfo.class);
     }
 
     /**
@@ -263,13 +791,36 @@ public class BitbucketCloudClient implements Closeable {
      *         than 20x codes
      */
     public UserInfo getUser(String username) throws ClientException {
-        String requestURI = UriTemplate.buildFromTemplate(USER_INFO) //
+        return operationCache.get(CachedOperation.USER, username, typeOf(UserInfo.class), //
+                () -> process(new HttpGet(userURI(username)), UserInfo.class));
+    }
+
+    /**
+     * Get user details with only the given fields.
+     * <p>
+     * Partial responses are never cached.
+     *
+     * @param username the user UUID or the Atlassian account identifier.
+     * @param fields the fields to return
+     * @return user details
+     * @throws ClientException in case of HTTP response from server different
+     *         than 20x codes
+     */
+    public UserInfo getUser(String username, Fields fields) throws ClientException {
+        return process(new HttpGet(withFields(userURI(username), fields, false)), UserInfo.class);
+    }
+
+    /* package */ String loggedUserURI() {
+        return LOGGED_USER;
+    }
+
+    /* package */ String userURI(String username) {
+        return UriTemplate.buildFromTemplate(USER_INFO) //
                 .query(QUERY_PARAM_FIELDS) //
                 .build() //
                 .set(PATH_PARAM_USER, username) //
                 .set(QUERY_PARAM_FIELDS, "-links") //
                 .expand();
-        return process(new HttpGet(requestURI), UserInfo.class);
     }
 
     /**
@@ -299,13 +850,173 @@ public class BitbucketCloudClient implements Closeable {
      *         than 20x codes
      */
     public List<Repository> getRepositories(String workspace) throws ClientException {
-        String requestURI = UriTemplate.buildFromTemplate(WORKSPACE_REPOSITORY) //
+        return getPaginated(repositoriesURI(workspace), RepositoryResponse.class);
+    }
+
+    /**
+     * Get all repositories of given workspace for which this user have read
+     * access, with only the given fields.
+     *
+     * @param workspace bitbucket workspace
+     * @param fields the fields of each repository to return
+     * @return a list of repositories.
+     * @throws ClientException in case of HTTP response from server different
+     *         than 20x codes
+     */
+    public List<Repository> getRepositories(String workspace, Fields fields) throws ClientException {
+        return getRepositories(workspace, null, fields);
+    }
+
+    /**
+     * Get the repositories of given workspace that match the query.
+     *
+     * @param workspace bitbucket workspace
+     * @param query the filter and sort evaluated by the server
+     * @return a list of repositories.
+     * @throws ClientException in case of HTTP response from server different
+     *         than 20x codes
+     */
+    public List<Repository> getRepositories(String workspace, Query query) throws ClientException {
+        return getRepositories(workspace, query, null);
+    }
+
+    /**
+     * Get the repositories of given workspace that match the query, with only
+     * the given fields.
+     *
+     * @param workspace bitbucket workspace
+     * @param query the filter and sort evaluated by the server, could be
+     *        {@code null}
+     * @param fields the fields of each repository to return, could be
+     *        {@code null}
+     * @return a list of repositories.
+     * @throws ClientException in case of HTTP response from server different
+     *         than 20x codes
+     */
+    public List<Repository> getRepositories(String workspace, Query query, Fields fields) throws ClientException {
+        return getPaginated(withFields(withQuery(repositoriesURI(workspace), query), fields, true), RepositoryResponse.class);
+    }
+
+    /**
+     * Get all repositories of given workspace for which this user have read
+     * access.
+     * <p>
+     * Pages are requested on demand while the stream is consumed, closing the
+     * stream stops any further request.
+     *
+     * @param workspace bitbucket workspace
+     * @return a lazy stream of repositories, a {@link ClientException} is
+     *         rethrown as {@link java.io.UncheckedIOException}
+     */
+    public Stream<Repository> streamRepositories(String workspace) {
+        return streamRepositories(workspace, null);
+    }
+
+    /**
+     * Get all repositories of given workspace, with only the given fields, as
+     * a lazy stream.
+     *
+     * @param workspace bitbucket workspace
+     * @param fields the fields of each repository to return
+     * @return a lazy stream of repositories
+     * @see #streamRepositories(String)
+     */
+    public Stream<Repository> streamRepositories(String workspace, Fields fields) {
+        return streamRepositories(workspace, null, fields);
+    }
+
+    /**
+     * Get the repositories of given workspace that match the query, with only
+     * the given fields, as a lazy stream.
+     *
+     * @param workspace bitbucket workspace
+     * @param query the filter and sort evaluated by the server, could be
+     *        {@code null}
+     * @param fields the fields of each repository to return, could be
+     *        {@code null}
+     * @return a lazy stream of repositories
+     * @see #streamRepositories(String)
+     */
+    public Stream<Repository> streamRepositories(String workspace, Query query, Fields fields) {
+        return streamPaginated(withFields(withQuery(repositoriesURI(workspace), query), fields, true), RepositoryResponse.class);
+    }
+
+    /**
+     * Executes the given task on each repository of the workspace with at
+     * most {@code concurrency} tasks running at the same time.
+     * <p>
+     * Tasks run on virtual threads when the runtime supports them. A failure
+     * of a task does not stop the others, it is collected in the returned
+     * result. Repositories are listed lazily while tasks are submitted.
+     * <p>
+     * The real concurrency of requests is also limited by
+     * {@link TransportConfig#getMaxPerRoute()}.
+     *
+     * @param <R> the type of result of each task
+     * @param workspace bitbucket workspace
+     * @param concurrency the maximum number of tasks in progress
+     * @param task the work to do for each repository
+     * @return results and failures keyed by repository slug
+     * @throws ClientException in case the repositories could not be listed
+     */
+    public <R> BatchResult<R> forEachRepository(String workspace, int concurrency, RepositoryTask<R> task) throws ClientException {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("concurrency must be greater than zero");
+        }
+        BatchResult<R> result = new BatchResult<>();
+        try (Stream<Repository> repositories = streamRepositories(workspace)) {
+            runConcurrently(repositories.iterator(), concurrency, repository -> {
+                try {
+                    result.success(repository.getSlug(), task.apply(repository));
+                } catch (Exception e) {
+                    result.failure(repository.getSlug(), e);
+                }
+            });
+            return result;
+        } catch (UncheckedIOException e) {
+            if (e.getCause() instanceof ClientException) {
+                throw (ClientException) e.getCause();
+            }
+            throw new ClientException("Fail to list the repositories of " + workspace, e.getCause());
+        }
+    }
+
+    /*
+     * Runs the task on each entry with at most concurrency tasks in progress
+     * and waits all of them.
+     */
+    private <E> void runConcurrently(Iterator<E> entries, int concurrency, Consumer<E> task) throws ClientException {
+        Semaphore permits = new Semaphore(concurrency);
+        ExecutorService executor = newTaskExecutor("bitbucket-task-", concurrency);
+        try {
+            while (entries.hasNext()) {
+                E entry = entries.next();
+                permits.acquire();
+                executor.execute(() -> {
+                    try {
+                        task.accept(entry);
+                    } finally {
+                        permits.release();
+                    }
+                });
+            }
+            // wait the running tasks
+            permits.acquire(concurrency);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ClientException("Interrupted while waiting repository tasks", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /* package */ String repositoriesURI(String workspace) {
+        return UriTemplate.buildFromTemplate(WORKSPACE_REPOSITORY) //
                 .query(QUERY_PARAM_PAGELEN) //
                 .build() //
                 .set(QUERY_PARAM_PAGELEN, DEFAULT_PAGE_LEN) //
                 .set(PATH_PARAM_WORKSPACE, workspace) //
                 .expand();
-        return getPaginated(requestURI, RepositoryResponse.class);
     }
 
     /**
@@ -321,7 +1032,7 @@ public class BitbucketCloudClient implements Closeable {
                 .query(QUERY_PARAM_PAGELEN, QUERY_PARAM_QUERY) //
                 .build() //
                 .set(QUERY_PARAM_PAGELEN, DEFAULT_PAGE_LEN) //
-                .set(QUERY_PARAM_QUERY, "repository.name=\"" + repository + "\"") //
+                .set(QUERY_PARAM_QUERY, Query.eq("repository.name", repository).getExpression()) //
                 .expand();
         List<UserPermission> permissions = getPaginated(requestURI, UserPermissionResponse.class);
         Permission higher = Permission.NONE;
@@ -345,7 +1056,8 @@ public class BitbucketCloudClient implements Closeable {
         String requestURI = UriTemplate.buildFromTemplate(WORKSPACE_GROUP).build() //
                 .set(PATH_PARAM_WORKSPACE, workspace) //
                 .expand();
-        return process(new HttpGet(requestURI), new TypeReference<List<GroupInfo>>() {});
+        return operationCache.get(CachedOperation.GROUPS, workspace, listOf(GroupInfo.class), //
+                () -> process(new HttpGet(requestURI), new TypeReference<List<GroupInfo>>() {}));
     }
 
     /**
@@ -361,15 +1073,24 @@ public class BitbucketCloudClient implements Closeable {
      *         than 20x codes
      */
     public Map<GroupInfo, Permission> getGroupsPermissions(String workspace, String repository) throws ClientException {
-        String requestURI = UriTemplate.buildFromTemplate(REPOSITORY_GROUP_PERMISSION) //
+        List<GroupPermission> data = operationCache.get(CachedOperation.GROUP_PERMISSIONS, cacheKey(workspace, repository), listOf(GroupPermission.class), //
+                () -> getPaginated(groupPermissionURI(workspace, repository, null), GroupPermissionResponse.class));
+        // Each group associated to its privilege
+        return data.stream() //
+                .collect(Collectors.toMap(GroupPermission::getGroup, GroupPermission::getPermission));
+    }
+
+    /*
+     * URI of a group permission or of all group permissions when the group slug is null
+     */
+    /* package */ String groupPermissionURI(String workspace, String repository, String groupSlug) {
+        return UriTemplate.buildFromTemplate(REPOSITORY_GROUP_PERMISSION) //
+                .path(PATH_PARAM_GROUP) //
                 .build() //
                 .set(PATH_PARAM_WORKSPACE, workspace) //
                 .set(PATH_PARAM_REPOSITORY, repository) //
+                .set(PATH_PARAM_GROUP, groupSlug) //
                 .expand();
-        List<GroupPermission> data = getPaginated(requestURI, GroupPermissionResponse.class);
-        // Each group associated to its privilege
-        return data.stream() //
-                .collect(Collectors.toMap(GroupPermission::getGroup, GroupPermission::getPermission));
     }
 
     /**
@@ -408,14 +1129,47 @@ public class BitbucketCloudClient implements Closeable {
      *         than 20x codes
      */
     public List<BranchRestriction> getBranchRestrictions(String workspace, String repository) throws ClientException {
-        String uri = UriTemplate.buildFromTemplate(REPOSITORY_BRANCH_RESTRICTIONS) //
+        return operationCache.get(CachedOperation.BRANCH_RESTRICTIONS, cacheKey(workspace, repository), listOf(BranchRestriction.class), //
+                () -> getPaginated(branchRestrictionsURI(workspace, repository), BranchPermissionResponse.class));
+    }
+
+    /**
+     * Returns branch restriction for the given repository as a lazy stream.
+     *
+     * @param workspace name
+     * @param repository the repository name
+     * @return a lazy stream of branch restriction setup for this repository
+     * @see #streamRepositories(String)
+     */
+    public Stream<BranchRestriction> streamBranchRestrictions(String workspace, String repository) {
+        return streamPaginated(branchRestrictionsURI(workspace, repository), BranchPermissionResponse.class);
+    }
+
+    /**
+     * Returns branch restriction for the given repository with only the
+     * given fields.
+     * <p>
+     * Partial responses are never cached.
+     *
+     * @param workspace name
+     * @param repository the repository name
+     * @param fields the fields of each branch restriction to return
+     * @return the list of branch restriction setup for this repository
+     * @throws ClientException in case of HTTP response from server different
+     *         than 20x codes
+     */
+    public List<BranchRestriction> getBranchRestrictions(String workspace, String repository, Fields fields) throws ClientException {
+        return getPaginated(withFields(branchRestrictionsURI(workspace, repository), fields, true), BranchPermissionResponse.class);
+    }
+
+    /* package */ String branchRestrictionsURI(String workspace, String repository) {
+        return UriTemplate.buildFromTemplate(REPOSITORY_BRANCH_RESTRICTIONS) //
                 .query(QUERY_PARAM_PAGELEN) //
                 .build() //
                 .set(QUERY_PARAM_PAGELEN, DEFAULT_PAGE_LEN) //
                 .set(PATH_PARAM_WORKSPACE, workspace) //
                 .set(PATH_PARAM_REPOSITORY, repository) //
                 .expand();
-        return getPaginated(uri, BranchPermissionResponse.class);
     }
 
     /**
@@ -432,18 +1186,72 @@ public class BitbucketCloudClient implements Closeable {
      *         than 20x codes
      */
     public void updateGroupPermission(String workspace, String repository, String groupSlug, Permission accessLevel) throws ClientException {
-        String requestURI = UriTemplate.buildFromTemplate(REPOSITORY_GROUP_PERMISSION) //
-                .path(PATH_PARAM_GROUP) //
-                .build() //
-                .set(PATH_PARAM_WORKSPACE, workspace) //
-                .set(PATH_PARAM_REPOSITORY, repository) //
-                .set(PATH_PARAM_GROUP, groupSlug) //
-                .expand();
-        HttpPut request = new HttpPut(requestURI);
+        HttpPut request = new HttpPut(groupPermissionURI(workspace, repository, groupSlug));
         GroupPermission entity = new GroupPermission();
         entity.setPermission(accessLevel);
         request.setEntity(asJSONEntity(entity));
-        process(request);
+        try {
+            process(request);
+        } finally {
+            operationCache.invalidate(CachedOperation.GROUP_PERMISSIONS, cacheKey(workspace, repository));
+        }
+    }
+
+    /**
+     * Applies many group permission changes with at most
+     * {@code concurrency} repositories updated at the same time.
+     * <p>
+     * The current permissions of each repository are read once, changes
+     * already in place are skipped. A change to {@link Permission#NONE}
+     * removes the group access. A failure of an entry does not stop the
+     * others, it is collected in the returned result.
+     * <p>
+     * This API is not available with access token credentials.
+     *
+     * @param workspace name
+     * @param changes the permission to set for each repository and group
+     * @param concurrency the maximum number of repositories in progress
+     * @return the outcome of each change keyed by
+     *         {@link GroupPermissionChange#toString()}
+     * @throws ClientException if interrupted while waiting the changes
+     */
+    public BatchResult<GroupPermissionChange.Outcome> applyGroupPermissions(String workspace, Collection<GroupPermissionChange> changes, int concurrency) throws ClientException {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("concurrency must be greater than zero");
+        }
+        Map<String, List<GroupPermissionChange>> byRepository = changes.stream() //
+                .collect(Collectors.groupingBy(GroupPermissionChange::getRepository, LinkedHashMap::new, Collectors.toList()));
+
+        BatchResult<GroupPermissionChange.Outcome> result = new BatchResult<>();
+        runConcurrently(byRepository.entrySet().iterator(), concurrency, entry -> {
+            String repository = entry.getKey();
+            Map<String, Permission> current;
+            try {
+                // never compare with a cached state
+                current = getPaginated(groupPermissionURI(workspace, repository, null), GroupPermissionResponse.class).stream() //
+                        .collect(Collectors.toMap(p -> p.getGroup().getSlug(), GroupPermission::getPermission, (p1, p2) -> p1));
+            } catch (ClientException e) {
+                entry.getValue().forEach(change -> result.failure(change.toString(), e));
+                return;
+            }
+            for (GroupPermissionChange change : entry.getValue()) {
+                Permission actual = current.getOrDefault(change.getGroup(), Permission.NONE);
+                try {
+                    if (actual == change.getPermission()) {
+                        result.success(change.toString(), GroupPermissionChange.Outcome.UNCHANGED);
+                    } else if (change.getPermission() == Permission.NONE) {
+                        deleteGroupPermission(workspace, repository, change.getGroup());
+                        result.success(change.toString(), GroupPermissionChange.Outcome.DELETED);
+                    } else {
+                        updateGroupPermission(workspace, repository, change.getGroup(), change.getPermission());
+                        result.success(change.toString(), GroupPermissionChange.Outcome.UPDATED);
+                    }
+                } catch (ClientException e) {
+                    result.failure(change.toString(), e);
+                }
+            }
+        });
+        return result;
     }
 
     /**
@@ -460,7 +1268,7 @@ public class BitbucketCloudClient implements Closeable {
         String requestURI = UriTemplate.buildFromTemplate(PERMISSIONS) //
                 .query(QUERY_PARAM_QUERY) //
                 .build() //
-                .set(QUERY_PARAM_QUERY, "user.nickname=\"" + nickname + "\"") //
+                .set(QUERY_PARAM_QUERY, Query.eq("user.nickname", nickname).getExpression()) //
                 .set(PATH_PARAM_WORKSPACE, workspace) //
                 .set(PATH_PARAM_REPOSITORY, repository) //
                 .expand();
@@ -509,14 +1317,11 @@ public class BitbucketCloudClient implements Closeable {
      *         than 20x codes
      */
     public void deleteGroupPermission(String workspace, String repository, String groupSlug) throws ClientException {
-        String requestURI = UriTemplate.buildFromTemplate(REPOSITORY_GROUP_PERMISSION) //
-                .path(PATH_PARAM_GROUP) //
-                .build() //
-                .set(PATH_PARAM_WORKSPACE, workspace) //
-                .set(PATH_PARAM_REPOSITORY, repository) //
-                .set(PATH_PARAM_GROUP, groupSlug) //
-                .expand();
-        process(new HttpDelete(requestURI));
+        try {
+            process(new HttpDelete(groupPermissionURI(workspace, repository, groupSlug)));
+        } finally {
+            operationCache.invalidate(CachedOperation.GROUP_PERMISSIONS, cacheKey(workspace, repository));
+        }
     }
 
     /**
@@ -529,47 +1334,116 @@ public class BitbucketCloudClient implements Closeable {
      *         than 20x codes
      */
     public void updateBranchRestriction(String workspace, String repository, BranchRestriction permission) throws ClientException {
-        UriTemplateBuilder template = UriTemplate.buildFromTemplate(REPOSITORY_BRANCH_RESTRICTIONS);
-
-        HttpUriRequestBase request;
-        if (permission.getId() != null) {
-            String requestURI = template.path("id") //
-                    .build() //
-                    .set(PATH_PARAM_WORKSPACE, workspace) //
-                    .set(PATH_PARAM_REPOSITORY, repository) //
-                    .set("id", permission.getId()) //
-                    .expand();
-            request = new HttpPut(requestURI);
-        } else {
-            String requestURI = template.build() //
-                    .set(PATH_PARAM_WORKSPACE, workspace) //
-                    .set(PATH_PARAM_REPOSITORY, repository) //
-                    .expand();
-            request = new HttpPost(requestURI);
-        }
+        String requestURI = branchRestrictionURI(workspace, repository, permission.getId());
+        HttpUriRequestBase request = permission.getId() != null ? new HttpPut(requestURI) : new HttpPost(requestURI);
         request.setEntity(asJSONEntity(permission));
-        process(request);
+        try {
+            process(request);
+        } finally {
+            operationCache.invalidate(CachedOperation.BRANCH_RESTRICTIONS, cacheKey(workspace, repository));
+        }
     }
 
     /**
-     * Gets all repository web hooks.
+     * Deletes the branch permission of the specified repository.
      *
      * @param workspace bitbucket
      * @param repository the repository name
-     * @param hookName a filter based on partial match of the web hook name
-     * @return list of web hook
+     * @param restrictionId the branch permission identifier
      * @throws ClientException in case of HTTP response from server different
      *         than 20x codes
      */
-    public List<Webhook> getWebhooks(String workspace, String repository, String... hookName) throws ClientException {
-        String uri = UriTemplate.buildFromTemplate(REPOSITORY_WEBHOOKS) //
-                .query(QUERY_PARAM_PAGELEN) //
+    public void deleteBranchRestriction(String workspace, String repository, int restrictionId) throws ClientException {
+        try {
+            process(new HttpDelete(branchRestrictionURI(workspace, repository, restrictionId)));
+        } finally {
+            operationCache.invalidate(CachedOperation.BRANCH_RESTRICTIONS, cacheKey(workspace, repository));
+        }
+    }
+
+    /**
+     * Brings the branch permissions of the repository to the desired ones
+     * with the minimal number of requests.
+     * <p>
+     * Permissions are paired by kind and branch pattern, a permission is
+     * updated when not {@link BranchRestriction#equals(Object) equals} to the
+     * desired one. In {@link #isDryRun() dry run} mode the report contains
+     * the changes that would be done.
+     *
+     * @param workspace bitbucket
+     * @param repository the repository name
+     * @param desired the permissions the repository must have
+     * @param prune if the permissions not desired are deleted
+     * @return the changes done
+     * @throws ClientException in case of HTTP response from server different
+     *         than 20x codes
+     */
+    public ReconcileReport<BranchRestriction> reconcileBranchRestrictions(String workspace, String repository, Collection<BranchRestriction> desired, boolean prune) throws ClientException {
+        // never reconcile against a cached state
+        List<BranchRestriction> current = getPaginated(branchRestrictionsURI(workspace, repository), BranchPermissionResponse.class);
+        return new Reconciler<BranchRestriction>(r -> Arrays.asList(r.getKind(), r.getPattern(), r.getBranchKind()), BranchRestriction::equals) //
+                .onCreate(r -> updateBranchRestriction(workspace, repository, copyOf(r, null))) //
+                .onUpdate((from, to) -> updateBranchRestriction(workspace, repository, copyOf(to, from.getId()))) //
+                .onDelete(r -> deleteBranchRestriction(workspace, repository, r.getId())) //
+                .reconcile(current, desired, prune);
+    }
+
+    /**
+     * Brings the branch permissions of all repositories of the workspace to
+     * the desired ones.
+     *
+     * @param workspace bitbucket
+     * @param concurrency the maximum number of repositories reconciled at
+     *        the same time
+     * @param desired the permissions each repository must have
+     * @param prune if the permissions not desired are deleted
+     * @return the changes done keyed by repository slug
+     * @throws ClientException in case the repositories could not be listed
+     * @see #reconcileBranchRestrictions(String, String, Collection, boolean)
+     */
+    public BatchResult<ReconcileReport<BranchRestriction>> reconcileBranchRestrictions(String workspace, int concurrency, Collection<BranchRestriction> desired, boolean prune) throws ClientException {
+        return forEachRepository(workspace, concurrency, repository -> reconcileBranchRestrictions(workspace, repository.getSlug(), desired, prune));
+    }
+
+    /*
+     * Desired permissions are shared between concurrent reconciliations.
+     */
+    private static BranchRestriction copyOf(BranchRestriction restriction, Integer id) {
+        BranchRestriction copy = new BranchRestriction(restriction.getKind(), restriction.getPattern());
+        copy.setId(id);
+        copy.setBranchKind(restriction.getBranchKind());
+        copy.setValue(restriction.getValue());
+        copy.setUsers(restriction.getUsers());
+        copy.setGroups(restriction.getGroups());
+        return copy;
+    }
+
+    /*
+     * URI of a branch restriction or of the restrictions collection when the identifier is null
+     */
+    /* package */ String branchRestrictionURI(String workspace, String repository, Integer id) {
+        return UriTemplate.buildFromTemplate(REPOSITORY_BRANCH_RESTRICTIONS) //
+                .path("id") //
                 .build() //
-                .set(QUERY_PARAM_PAGELEN, DEFAULT_PAGE_LEN) //
                 .set(PATH_PARAM_WORKSPACE, workspace) //
                 .set(PATH_PARAM_REPOSITORY, repository) //
+                .set("id", id) //
                 .expand();
-        List<Webhook> webhooks = getPaginated(uri, WebhookResponse.class);
+    }
+
+    /**
+     * Gets all repository web hooks.
+     *
+     * @param workspace bitbucket
+     * @param repository the repository name
+     * @param hookName a filter based on partial match of the web hook name
+     * @return list of web hook
+     * @throws ClientException in case of HTTP response from server different
+     *         than 20x codes
+     */
+    public List<Webhook> getWebhooks(String workspace, String repository, String... hookName) throws ClientException {
+        List<Webhook> webhooks = operationCache.get(CachedOperation.WEBHOOKS, cacheKey(workspace, repository), listOf(Webhook.class), //
+                () -> getPaginated(webhooksURI(workspace, repository), WebhookResponse.class));
         if (hookName != null && hookName.length > 0) {
             return webhooks.stream() //
                     .filter(hook -> Arrays.asList(hookName).contains(hook.getDescription())) //
@@ -578,6 +1452,28 @@ public class BitbucketCloudClient implements Closeable {
         return webhooks;
     }
 
+    /**
+     * Gets all repository web hooks as a lazy stream.
+     *
+     * @param workspace bitbucket
+     * @param repository the repository name
+     * @return a lazy stream of web hook
+     * @see #streamRepositories(String)
+     */
+    public Stream<Webhook> streamWebhooks(String workspace, String repository) {
+        return streamPaginated(webhooksURI(workspace, repository), WebhookResponse.class);
+    }
+
+    /* package */ String webhooksURI(String workspace, String repository) {
+        return UriTemplate.buildFromTemplate(REPOSITORY_WEBHOOKS) //
+                .query(QUERY_PARAM_PAGELEN) //
+                .build() //
+                .set(QUERY_PARAM_PAGELEN, DEFAULT_PAGE_LEN) //
+                .set(PATH_PARAM_WORKSPACE, workspace) //
+                .set(PATH_PARAM_REPOSITORY, repository) //
+                .expand();
+    }
+
     /**
      * Updates web hook.
      *
@@ -589,16 +1485,13 @@ public class BitbucketCloudClient implements Closeable {
      *         than 20x codes
      */
     public Webhook updateWebhook(String workspace, String repository, Webhook webhook) throws ClientException {
-        String requestURI = UriTemplate.buildFromTemplate(REPOSITORY_WEBHOOKS) //
-                .path("id") //
-                .build() //
-                .set(PATH_PARAM_WORKSPACE, workspace) //
-                .set(PATH_PARAM_REPOSITORY, repository) //
-                .set("id", webhook.getUUID()) //
-                .expand();
-        HttpPut request = new HttpPut(requestURI);
+        HttpPut request = new HttpPut(webhookURI(workspace, repository, webhook.getUUID()));
         request.setEntity(asJSONEntity(webhook));
-        return process(request, Webhook.class);
+        try {
+            return process(request, Webhook.class);
+        } finally {
+            operationCache.invalidate(CachedOperation.WEBHOOKS, cacheKey(workspace, repository));
+        }
     }
 
     /**
@@ -611,14 +1504,24 @@ public class BitbucketCloudClient implements Closeable {
      *         than 20x codes
      */
     public void deleteWebhook(String workspace, String repository, String webhookId) throws ClientException {
-        String requestURI = UriTemplate.buildFromTemplate(REPOSITORY_WEBHOOKS) //
+        try {
+            process(new HttpDelete(webhookURI(workspace, repository, webhookId)));
+        } finally {
+            operationCache.invalidate(CachedOperation.WEBHOOKS, cacheKey(workspace, repository));
+        }
+    }
+
+    /*
+     * URI of a web hook or of the web hooks collection when the identifier is null
+     */
+    /* package */ String webhookURI(String workspace, String repository, String webhookId) {
+        return UriTemplate.buildFromTemplate(REPOSITORY_WEBHOOKS) //
                 .path("id") //
                 .build() //
                 .set(PATH_PARAM_WORKSPACE, workspace) //
                 .set(PATH_PARAM_REPOSITORY, repository) //
                 .set("id", webhookId) //
                 .expand();
-        process(new HttpDelete(requestURI));
     }
 
     /**
@@ -632,13 +1535,90 @@ public class BitbucketCloudClient implements Closeable {
      *         than 20x codes
      */
     public Webhook addWebHook(String workspace, String repository, Webhook webhook) throws ClientException {
-        String requestURI = UriTemplate.fromTemplate(REPOSITORY_WEBHOOKS) //
-                .set(PATH_PARAM_WORKSPACE, workspace) //
-                .set(PATH_PARAM_REPOSITORY, repository) //
-                .expand();
-        HttpPost request = new HttpPost(requestURI);
+        HttpPost request = new HttpPost(webhookURI(workspace, repository, null));
         request.setEntity(asJSONEntity(webhook));
-        return process(request, Webhook.class);
+        try {
+            return process(request, Webhook.class);
+        } finally {
+            operationCache.invalidate(CachedOperation.WEBHOOKS, cacheKey(workspace, repository));
+        }
+    }
+
+    /**
+     * Brings the web hooks of the repository to the desired ones with the
+     * minimal number of requests.
+     * <p>
+     * Web hooks are paired by URL, a web hook is updated when its set of
+     * events, its active status or the desired description differs. In
+     * {@link #isDryRun() dry run} mode the report contains the changes that
+     * would be done.
+     *
+     * @param workspace bitbucket
+     * @param repository the repository name
+     * @param desired the web hooks the repository must have
+     * @param prune if the web hooks not desired are deleted
+     * @return the changes done
+     * @throws ClientException in case of HTTP response from server different
+     *         than 20x codes
+     * @throws IllegalArgumentException if a desired web hook has no events
+     */
+    public ReconcileReport<Webhook> reconcileWebhooks(String workspace, String repository, Collection<Webhook> desired, boolean prune) throws ClientException {
+        checkEvents(desired);
+        // never reconcile against a cached state
+        List<Webhook> current = getPaginated(webhooksURI(workspace, repository), WebhookResponse.class);
+        return new Reconciler<Webhook>(Webhook::getUrl, BitbucketCloudClient::isEquivalent) //
+                .onCreate(hook -> addWebHook(workspace, repository, copyOf(hook, null))) //
+                .onUpdate((from, to) -> updateWebhook(workspace, repository, copyOf(to, from.getUUID()))) //
+                .onDelete(hook -> deleteWebhook(workspace, repository, hook.getUUID())) //
+                .reconcile(current, desired, prune);
+    }
+
+    /**
+     * Brings the web hooks of all repositories of the workspace to the
+     * desired ones.
+     *
+     * @param workspace bitbucket
+     * @param concurrency the maximum number of repositories reconciled at
+     *        the same time
+     * @param desired the web hooks each repository must have
+     * @param prune if the web hooks not desired are deleted
+     * @return the changes done keyed by repository slug
+     * @throws ClientException in case the repositories could not be listed
+     * @throws IllegalArgumentException if a desired web hook has no events
+     * @see #reconcileWebhooks(String, String, Collection, boolean)
+     */
+    public BatchResult<ReconcileReport<Webhook>> reconcileWebhooks(String workspace, int concurrency, Collection<Webhook> desired, boolean prune) throws ClientException {
+        checkEvents(desired);
+        return forEachRepository(workspace, concurrency, repository -> reconcileWebhooks(workspace, repository.getSlug(), desired, prune));
+    }
+
+    /*
+     * A web hook must subscribe at least one event, checked before any
+     * request is sent.
+     */
+    private static void checkEvents(Collection<Webhook> webhooks) {
+        for (Webhook webhook : webhooks) {
+            if (webhook.getEvents() == null || webhook.getEvents().isEmpty()) {
+                throw new IllegalArgumentException("Web hook " + webhook.getUrl() + " has no events");
+            }
+        }
+    }
+
+    private static boolean isEquivalent(Webhook current, Webhook desired) {
+        return current.isActive() == desired.isActive() //
+                && current.getEvents() != null //
+                && new HashSet<>(current.getEvents()).equals(new HashSet<>(desired.getEvents())) //
+                && (desired.getDescription() == null || desired.getDescription().equals(current.getDescription()));
+    }
+
+    private static Webhook copyOf(Webhook webhook, String uuid) {
+        Webhook copy = new Webhook();
+        copy.setUUID(uuid);
+        copy.setUrl(webhook.getUrl());
+        copy.setDescription(webhook.getDescription());
+        copy.setActive(webhook.isActive());
+        copy.setEvents(new ArrayList<>(webhook.getEvents()));
+        return copy;
     }
 
     /**
@@ -651,11 +1631,179 @@ public class BitbucketCloudClient implements Closeable {
      *         than 20x codes
      */
     public List<PullRequest> getPullRequests(String workspace, String repository) throws ClientException {
-        String requestURI = UriTemplate.fromTemplate(REPOSITORY_PRS) //
+        return getPaginated(pullRequestsURI(workspace, repository), PullRequestResponse.class);
+    }
+
+    /**
+     * Gets all pull request of specified repository with only the given
+     * fields.
+     *
+     * @param workspace bitbucket
+     * @param repository the repository name
+     * @param fields the fields of each pull request to return
+     * @return list of pull requests
+     * @throws ClientException in case of HTTP response from server different
+     *         than 20x codes
+     */
+    public List<PullRequest> getPullRequests(String workspace, String repository, Fields fields) throws ClientException {
+        return getPullRequests(workspace, repository, null, fields);
+    }
+
+    /**
+     * Gets the pull request of specified repository that match the query.
+     * <p>
+     * Without a state condition the server returns only open pull requests.
+     *
+     * @param workspace bitbucket
+     * @param repository the repository name
+     * @param query the filter and sort evaluated by the server
+     * @return list of pull requests
+     * @throws ClientException in case of HTTP response from server different
+     *         than 20x codes
+     */
+    public List<PullRequest> getPullRequests(String workspace, String repository, Query query) throws ClientException {
+        return getPullRequests(workspace, repository, query, null);
+    }
+
+    /**
+     * Gets the pull request of specified repository that match the query,
+     * with only the given fields.
+     *
+     * @param workspace bitbucket
+     * @param repository the repository name
+     * @param query the filter and sort evaluated by the server, could be
+     *        {@code null}
+     * @param fields the fields of each pull request to return, could be
+     *        {@code null}
+     * @return list of pull requests
+     * @throws ClientException in case of HTTP response from server different
+     *         than 20x codes
+     */
+    public List<PullRequest> getPullRequests(String workspace, String repository, Query query, Fields fields) throws ClientException {
+        return getPaginated(withFields(withQuery(pullRequestsURI(workspace, repository), query), fields, true), PullRequestResponse.class);
+    }
+
+    /**
+     * Gets all pull request of specified repository as a lazy stream.
+     *
+     * @param workspace bitbucket
+     * @param repository the repository name
+     * @return a lazy stream of pull requests
+     * @see #streamRepositories(String)
+     */
+    public Stream<PullRequest> streamPullRequests(String workspace, String repository) {
+        return streamPullRequests(workspace, repository, null);
+    }
+
+    /**
+     * Gets all pull request of specified repository, with only the given
+     * fields, as a lazy stream.
+     *
+     * @param workspace bitbucket
+     * @param repository the repository name
+     * @param fields the fields of each pull request to return
+     * @return a lazy stream of pull requests
+     * @see #streamRepositories(String)
+     */
+    public Stream<PullRequest> streamPullRequests(String workspace, String repository, Fields fields) {
+        return streamPullRequests(workspace, repository, null, fields);
+    }
+
+    /**
+     * Gets the pull request of specified repository that match the query,
+     * with only the given fields, as a lazy stream.
+     *
+     * @param workspace bitbucket
+     * @param repository the repository name
+     * @param query the filter and sort evaluated by the server, could be
+     *        {@code null}
+     * @param fields the fields of each pull request to return, could be
+     *        {@code null}
+     * @return a lazy stream of pull requests
+     * @see #streamRepositories(String)
+     */
+    public Stream<PullRequest> streamPullRequests(String workspace, String repository, Query query, Fields fields) {
+        return streamPaginated(withFields(withQuery(pullRequestsURI(workspace, repository), query), fields, true), PullRequestResponse.class);
+    }
+
+    /**
+     * Gets the pull requests, in any state, created or updated since the
+     * previous synchronisation of the repository.
+     * <p>
+     * Pull requests are requested from the most recently updated and paging
+     * stops at the first one older than the stored watermark. Those updated
+     * exactly at the watermark are returned unless the store reports them as
+     * already seen. The new watermark is stored only when changed.
+     *
+     * @param workspace bitbucket
+     * @param repository the repository name
+     * @param store where the watermark of each repository is kept
+     * @return the changed pull requests and the new watermark
+     * @throws ClientException in case of HTTP response from server different
+     *         than 20x codes or if the watermark store fails
+     */
+    public PullRequestChanges syncPullRequests(String workspace, String repository, WatermarkStore store) throws ClientException {
+        Instant watermark;
+        Set<Integer> seen;
+        try {
+            watermark = store.get(workspace, repository);
+            seen = watermark != null ? store.getSeen(workspace, repository) : Collections.emptySet();
+        } catch (IOException e) {
+            throw new ClientException("Fail to read the watermark of " + workspace + '/' + repository, e);
+        }
+        Query query = Query.eq("state", "OPEN") //
+                .or(Query.eq("state", "MERGED")) //
+                .or(Query.eq("state", "DECLINED")) //
+                .or(Query.eq("state", "SUPERSEDED"));
+        if (watermark != null) {
+            // others could be updated in the same instant after the previous synchronisation
+            query = query.and(Query.ge("updated_on", watermark));
+        }
+        query = query.sortDescending("updated_on");
+
+        List<PullRequest> changes;
+        try (Stream<PullRequest> pullRequests = streamPullRequests(workspace, repository, query, null)) {
+            changes = pullRequests //
+                    .takeWhile(pr -> watermark == null || pr.getUpdatedOn() == null || !pr.getUpdatedOn().toInstant().isBefore(watermark)) //
+                    .filter(pr -> pr.getUpdatedOn() == null || !pr.getUpdatedOn().toInstant().equals(watermark) || !seen.contains(pr.getId())) //
+                    .collect(Collectors.toList());
+        } catch (UncheckedIOException e) {
+            if (e.getCause() instanceof ClientException) {
+                throw (ClientException) e.getCause();
+            }
+            throw new ClientException("Fail to read the pull requests of " + workspace + '/' + repository, e.getCause());
+        }
+
+        Instant newWatermark = watermark;
+        for (PullRequest pr : changes) {
+            if (pr.getUpdatedOn() != null && (newWatermark == null || pr.getUpdatedOn().toInstant().isAfter(newWatermark))) {
+                newWatermark = pr.getUpdatedOn().toInstant();
+            }
+        }
+        Set<Integer> newSeen = new HashSet<>();
+        if (newWatermark != null && newWatermark.equals(watermark)) {
+            newSeen.addAll(seen);
+        }
+        for (PullRequest pr : changes) {
+            if (pr.getUpdatedOn() != null && pr.getUpdatedOn().toInstant().equals(newWatermark)) {
+                newSeen.add(pr.getId());
+            }
+        }
+        if (newWatermark != null && (!newWatermark.equals(watermark) || !newSeen.equals(seen))) {
+            try {
+                store.put(workspace, repository, newWatermark, newSeen);
+            } catch (IOException e) {
+                throw new ClientException("Fail to store the watermark of " + workspace + '/' + repository, e);
+            }
+        }
+        return new PullRequestChanges(Collections.unmodifiableList(changes), newWatermark);
+    }
+
+    /* package */ String pullRequestsURI(String workspace, String repository) {
+        return UriTemplate.fromTemplate(REPOSITORY_PRS) //
                 .set(PATH_PARAM_WORKSPACE, workspace) //
                 .set(PATH_PARAM_REPOSITORY, repository) //
                 .expand();
-        return getPaginated(requestURI, PullRequestResponse.class);
     }
 
     /**
@@ -669,12 +1817,31 @@ public class BitbucketCloudClient implements Closeable {
      *         than 20x codes
      */
     public PullRequest getPullRequest(String workspace, String repository, int prId) throws ClientException {
-        String requestURI = UriTemplate.fromTemplate(REPOSITORY_PR) //
+        return getPullRequest(workspace, repository, prId, null);
+    }
+
+    /**
+     * Gets the pull request matching the identifier for the given repository
+     * with only the given fields.
+     *
+     * @param workspace bitbucket
+     * @param repository the repository name
+     * @param prId the pull request identifier
+     * @param fields the fields of the pull request to return
+     * @return pull requests matching the given identifier
+     * @throws ClientException in case of HTTP response from server different
+     *         than 20x codes
+     */
+    public PullRequest getPullRequest(String workspace, String repository, int prId, Fields fields) throws ClientException {
+        return process(new HttpGet(withFields(pullRequestURI(workspace, repository, prId), fields, false)), PullRequest.class);
+    }
+
+    /* package */ String pullRequestURI(String workspace, String repository, int prId) {
+        return UriTemplate.fromTemplate(REPOSITORY_PR) //
                 .set(PATH_PARAM_WORKSPACE, workspace) //
                 .set(PATH_PARAM_REPOSITORY, repository) //
                 .set(PATH_PARAM_PR_ID, prId) //
                 .expand();
-        return process(new HttpGet(requestURI), PullRequest.class);
     }
 
     /**
@@ -688,7 +1855,15 @@ public class BitbucketCloudClient implements Closeable {
      *         than 20x codes
      */
     public List<Approval> getPullRequestApprovals(String workspace, String repository, int prId) throws ClientException {
-        String requestURI = UriTemplate.buildFromTemplate(REPOSITORY_PR_ACTIVITY) //
+        List<Activity> activities = getPaginated(pullRequestApprovalsURI(workspace, repository, prId), PullRequestActivityResponse.class);
+        return activities.stream() //
+                .map(Activity::getApproval) //
+                .filter(Objects::nonNull) //
+                .toList();
+    }
+
+    /* package */ String pullRequestApprovalsURI(String workspace, String repository, int prId) {
+        return UriTemplate.buildFromTemplate(REPOSITORY_PR_ACTIVITY) //
                 .query(QUERY_PARAM_FIELDS) //
                 .build() //
                 .set(QUERY_PARAM_FIELDS, "values.approval") //
@@ -696,11 +1871,6 @@ public class BitbucketCloudClient implements Closeable {
                 .set(PATH_PARAM_REPOSITORY, repository) //
                 .set(PATH_PARAM_PR_ID, prId) //
                 .expand();
-        List<Activity> activities = getPaginated(requestURI, PullRequestActivityResponse.class);
-        return activities.stream() //
-                .map(Activity::getApproval) //
-                .filter(Objects::nonNull) //
-                .toList();
     }
 
     /**
@@ -729,17 +1899,69 @@ public class BitbucketCloudClient implements Closeable {
      *         than 20x codes
      */
     public List<Commit> getPullRequestCommits(String workspace, String repository, int prId, boolean light) throws ClientException {
-        UriTemplateBuilder builder = UriTemplate.buildFromTemplate(REPOSITORY_PR_COMMITS);
-        UriTemplate template = (light ? builder : builder.query(QUERY_PARAM_FIELDS)).build();
-        if (light) {
-            template = template.set(QUERY_PARAM_FIELDS, "-values.links,-values.repository,-values.parents.links");
-        }
-        String requestURI = template //
+        return getPaginated(pullRequestCommitsURI(workspace, repository, prId, light), PullRequestCommitsResponse.class);
+    }
+
+    /**
+     * Gets commits for the specified pull request identifier with only the
+     * given fields.
+     *
+     * @param workspace name
+     * @param repository name
+     * @param prId pull request identifier
+     * @param fields the fields of each commit to return
+     * @return list of pull request commits
+     * @throws ClientException in case of HTTP response from server different
+     *         than 20x codes
+     */
+    public List<Commit> getPullRequestCommits(String workspace, String repository, int prId, Fields fields) throws ClientException {
+        return getPaginated(withFields(pullRequestCommitsURI(workspace, repository, prId, false), fields, true), PullRequestCommitsResponse.class);
+    }
+
+    /* package */ String pullRequestCommitsURI(String workspace, String repository, int prId, boolean light) {
+        String uri = UriTemplate.fromTemplate(REPOSITORY_PR_COMMITS) //
                 .set(PATH_PARAM_WORKSPACE, workspace) //
                 .set(PATH_PARAM_REPOSITORY, repository) //
                 .set(PATH_PARAM_PR_ID, prId) //
                 .expand();
-        return getPaginated(requestURI, PullRequestCommitsResponse.class);
+        return light ? withFields(uri, LIGHT_COMMIT, true) : uri;
+    }
+
+    /*
+     * Sets the filter and sort parameters.
+     */
+    private String withQuery(String uri, Query query) {
+        if (query == null || query.getExpression() == null && query.getSort() == null) {
+            return uri;
+        }
+        try {
+            URIBuilder builder = new URIBuilder(uri);
+            if (query.getExpression() != null) {
+                builder.setParameter(QUERY_PARAM_QUERY, query.getExpression());
+            }
+            if (query.getSort() != null) {
+                builder.setParameter(QUERY_PARAM_SORT, query.getSort());
+            }
+            return builder.build().toString();
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException("Invalid URI " + uri, e);
+        }
+    }
+
+    /*
+     * Sets the partial response parameter, it replaces the fields requested
+     * by default.
+     */
+    private String withFields(String uri, Fields fields, boolean paginated) {
+        String value = fields != null ? fields.toQuery(paginated) : null;
+        if (value == null) {
+            return uri;
+        }
+        try {
+            return new URIBuilder(uri).setParameter(QUERY_PARAM_FIELDS, value).build().toString();
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException("Invalid URI " + uri, e);
+        }
     }
 
     /**
@@ -753,13 +1975,16 @@ public class BitbucketCloudClient implements Closeable {
      *         than 20x codes
      */
     public List<CodeInsightsReport> getCodeInsightsReports(String workspace, String repository, String hash) throws ClientException {
-        String requestURI = UriTemplate.buildFromTemplate(COMMIT_CODE_INSIGHTS_REPORTS) //
+        return getPaginated(codeInsightsReportsURI(workspace, repository, hash), CodeInsightsReportResponse.class);
+    }
+
+    /* package */ String codeInsightsReportsURI(String workspace, String repository, String hash) {
+        return UriTemplate.buildFromTemplate(COMMIT_CODE_INSIGHTS_REPORTS) //
                 .build() //
                 .set(PATH_PARAM_WORKSPACE, workspace) //
                 .set(PATH_PARAM_REPOSITORY, repository) //
                 .set(PATH_PARAM_COMMIT, hash) //
                 .expand();
-        return getPaginated(requestURI, CodeInsightsReportResponse.class);
     }
 
     /**
@@ -792,62 +2017,132 @@ public class BitbucketCloudClient implements Closeable {
      *         than 20x codes
      */
     public void setPullRequestApproval(String workspace, String repository, int prId, boolean approval) throws ClientException {
-        String requestURI = UriTemplate.fromTemplate(REPOSITORY_PR_APPROVE) //
+        String requestURI = pullRequestApprovalURI(workspace, repository, prId);
+        if (approval) {
+            process(new HttpPost(requestURI));
+        } else {
+            process(new HttpDelete(requestURI));
+        }
+    }
+
+    /* package */ String pullRequestApprovalURI(String workspace, String repository, int prId) {
+        return UriTemplate.fromTemplate(REPOSITORY_PR_APPROVE) //
                 .set(PATH_PARAM_WORKSPACE, workspace) //
                 .set(PATH_PARAM_REPOSITORY, repository) //
                 .set(PATH_PARAM_PR_ID, prId) //
                 .expand();
+    }
 
-        if (approval) {
-            process(new HttpPost(requestURI));
-        } else {
-            process(new HttpDelete(requestURI));
+    /*
+     * Requests are built with the default Bitbucket URLs, sent to the
+     * configured ones.
+     */
+    /* package */ void rebase(HttpRequest request) throws ClientException {
+        try {
+            String uri = request.getUri().toString();
+            String rebased = transport.rebase(uri);
+            if (!rebased.equals(uri)) {
+                request.setUri(new URI(rebased));
+            }
+        } catch (URISyntaxException e) {
+            throw new ClientException("Invalid request URI " + request.getRequestUri(), e);
         }
     }
 
-    protected void setupRequest(HttpUriRequest request) {
+    protected void setupRequest(HttpRequest request) {
+        setupRequest(request, selectCredentials(request));
+    }
+
+    protected void setupRequest(HttpRequest request, Credentials credentials) {
         addHeader(request, HttpHeaders.ACCEPT, "application/json;charset=utf-8");
         addHeader(request, HEADER_CSRF, "no-check");
         addHeader(request, HttpHeaders.CONTENT_TYPE, "application/json;charset=utf-8");
         credentials.apply(request);
     }
 
-    private void addHeader(HttpUriRequest request, String key, String value) {
+    private void addHeader(HttpRequest request, String key, String value) {
         if (request.getFirstHeader(key) == null) {
             request.addHeader(key, value);
         }
     }
 
-    private AuthToken refreshToken() throws ClientException {
-        HttpPost request = new HttpPost(OAUTH2);
+    private AuthToken requestToken(OAuth2Consumer consumer, AuthToken current) throws ClientException {
+        if (current != null && current.getRefreshToken() != null) {
+            try {
+                return refreshToken(consumer, current);
+            } catch (ClientException e) {
+                logger.log(Level.FINE, "Fail to refresh OAuth2 access token, request a new one", e);
+            }
+        }
+        return getOAuthToken(consumer);
+    }
+
+    private AuthToken refreshToken(OAuth2Consumer consumer, AuthToken authToken) throws ClientException {
+        HttpPost request = new TokenRequest(consumer);
         request.setEntity(new UrlEncodedFormEntity(Arrays.asList( //
                 new BasicNameValuePair(FORM_PARAM_GRANT_TYPE, GRANT_TYPE_REFRESH), //
                 new BasicNameValuePair(FORM_PARAM_REFRESH_TOKEN, authToken.getRefreshToken()) //
         )));
-
+        addHeader(request, HttpHeaders.CONTENT_TYPE, "application/x-www-form-urlencoded");
         return process(request, AuthToken.class);
     }
 
-    private AuthToken getOAuthToken() throws ClientException {
-        HttpPost request = new HttpPost(OAUTH2);
+    private AuthToken getOAuthToken(OAuth2Consumer consumer) throws ClientException {
+        HttpPost request = new TokenRequest(consumer);
         request.setEntity(new UrlEncodedFormEntity(Arrays.asList( //
                 new BasicNameValuePair(FORM_PARAM_GRANT_TYPE, GRANT_TYPE_CC))));
         addHeader(request, HttpHeaders.CONTENT_TYPE, "application/x-www-form-urlencoded");
         return process(request, AuthToken.class);
     }
 
-    private boolean hasOAuth() {
-        return credentials instanceof OAuth2Consumer;
+    /*
+     * Request of an access token on behalf of a consumer of the pool.
+     */
+    private static class TokenRequest extends HttpPost {
+        private static final long serialVersionUID = 1L;
+
+        private final OAuth2Consumer consumer;
+
+        TokenRequest(OAuth2Consumer consumer) {
+            super(OAUTH2);
+            this.consumer = consumer;
+        }
     }
 
-    private boolean isTokenExpired() {
-        return hasOAuth() && authToken != null && LocalDateTime.now().isAfter(tokenExpiration);
+    protected PoolingHttpClientConnectionManager buildConnectionManager() {
+        return PoolingHttpClientConnectionManagerBuilder.create() //
+                .setMaxConnTotal(transport.getMaxTotal()) //
+                .setMaxConnPerRoute(transport.getMaxPerRoute()) //
+                .setDefaultConnectionConfig(transport.connectionConfig()) //
+                .build();
     }
 
     protected CloseableHttpClient buildClient() {
-        return HttpClients.custom() //
-                .setRetryStrategy(new DefaultHttpRequestRetryStrategy(retry, TimeValue.ofSeconds(2))) //
-                .build();
+        HttpClientBuilder builder = HttpClients.custom() //
+                .setConnectionManager(connectionManager) //
+                // the pool outlives the client rebuilt when retry changes
+                .setConnectionManagerShared(true) //
+                // compressed responses are decoded by the client to account them
+                .disableContentCompression() //
+                .setDefaultRequestConfig(transport.requestConfig()) //
+                .setRetryStrategy(buildRetryStrategy());
+        if (transport.getIdleEviction() != null) {
+            builder.evictExpiredConnections() //
+                    .evictIdleConnections(transport.getIdleEviction());
+        }
+        return builder.build();
+    }
+
+    private JavaType typeOf(Class<?> type) {
+        return objectMapper.getTypeFactory().constructType(type);
+    }
+
+    private JavaType listOf(Class<?> elementType) {
+        return objectMapper.getTypeFactory().constructCollectionType(List.class, elementType);
+    }
+
+    private static String cacheKey(String workspace, String repository) {
+        return workspace + '/' + repository;
     }
 
     private ObjectMapper buildJSONConverter() {
@@ -867,7 +2162,33 @@ public class BitbucketCloudClient implements Closeable {
 
     @Override
     public void close() throws IOException {
+        synchronized (this) {
+            if (pageExecutor != null) {
+                pageExecutor.shutdownNow();
+                pageExecutor = null;
+            }
+        }
         client.close();
+        if (connectionManager != null) {
+            connectionManager.close();
+        }
+    }
+
+    public TransportConfig getTransportConfig() {
+        return transport;
+    }
+
+    /**
+     * Returns a snapshot of the connection pool usage.
+     * <p>
+     * A pending count greater than zero means that callers are waiting for a
+     * free connection, see {@link TransportConfig#setMaxPerRoute(int)}.
+     *
+     * @return the total leased, pending and available connections or
+     *         {@code null} if the client does not use a pool
+     */
+    public PoolStats getPoolStats() {
+        return connectionManager != null ? connectionManager.getTotalStats() : null;
     }
 
     public int getRetry() {
@@ -876,7 +2197,235 @@ public class BitbucketCloudClient implements Closeable {
 
     public void setRetry(int retry) {
         this.retry = retry;
-        buildClient();
+        CloseableHttpClient oldClient = client;
+        client = buildClient();
+        try {
+            oldClient.close();
+        } catch (IOException e) {
+            logger.log(Level.FINE, "Fail to close the previous HTTP client", e);
+        }
+    }
+
+    public int getPageConcurrency() {
+        return pageConcurrency;
+    }
+
+    /**
+     * Sets the maximum number of pages requested in parallel.
+     * <p>
+     * When greater than one and the first page returns the total size of the
+     * collection, all other pages are requested concurrently. Elements are
+     * always returned in the server order.
+     *
+     * @param pageConcurrency the maximum number of in-flight page requests
+     */
+    public synchronized void setPageConcurrency(int pageConcurrency) {
+        if (pageConcurrency < 1) {
+            throw new IllegalArgumentException("page concurrency must be greater than zero");
+        }
+        this.pageConcurrency = pageConcurrency;
+        // not shut down, other threads could still request pages to it
+        pageExecutor = null;
+    }
+
+    /**
+     * Sets the maximum number of GET responses retained to revalidate them
+     * with conditional requests.
+     * <p>
+     * When the server answers {@code 304 Not Modified} the previous
+     * deserialised object is returned without download and parse the content
+     * again, so the same instance could be returned by subsequent calls.
+     * Least recently used responses are discarded first.
+     *
+     * @param maxEntries the maximum number of cached responses, zero
+     *        disables the cache
+     */
+    public void setResponseCacheSize(int maxEntries) {
+        if (maxEntries < 0) {
+            throw new IllegalArgumentException("cache size must not be negative");
+        }
+        responseCache = maxEntries == 0 ? null : new ResponseCache(maxEntries);
+    }
+
+    /**
+     * Returns the usage of the conditional response cache.
+     *
+     * @return the cache statistics or {@code null} if the cache is disabled
+     * @see #setResponseCacheSize(int)
+     */
+    public CacheStats getResponseCacheStats() {
+        ResponseCache cache = responseCache;
+        return cache != null ? cache.stats() : null;
+    }
+
+    /**
+     * Caches the result of the given read operation for the given time.
+     * <p>
+     * Each call returns a new copy of the cached result. Mutations made
+     * through this client invalidate the cached results of the same
+     * repository, changes made by others are seen only after the entry
+     * expires.
+     *
+     * @param operation the read operation to cache
+     * @param ttl how long a result is valid
+     * @param maxSize the maximum number of results retained, least recently
+     *        used are discarded first, zero disables the cache
+     */
+    public void setCachePolicy(CachedOperation operation, Duration ttl, int maxSize) {
+        if (maxSize < 0 || ttl.isNegative()) {
+            throw new IllegalArgumentException("cache size and time to live must not be negative");
+        }
+        operationCache.setPolicy(operation, ttl, maxSize);
+    }
+
+    /**
+     * Returns the usage of the cache of the given operation.
+     *
+     * @param operation the cached read operation
+     * @return the cache statistics or {@code null} if the operation is not
+     *         cached
+     * @see #setCachePolicy(CachedOperation, Duration, int)
+     */
+    public CacheStats getCacheStats(CachedOperation operation) {
+        return operationCache.stats(operation);
+    }
+
+    /*
+     * Same as the default strategy but 429 responses are left to the rate
+     * limiter, which honours Retry-After for all requests of the credentials.
+     */
+    protected HttpRequestRetryStrategy buildRetryStrategy() {
+        return new DefaultHttpRequestRetryStrategy(retry, TimeValue.ofSeconds(2), //
+                Arrays.asList(InterruptedIOException.class, //
+                        UnknownHostException.class, //
+                        ConnectException.class, //
+                        ConnectionClosedException.class, //
+                        NoRouteToHostException.class, //
+                        SSLException.class), //
+                Arrays.asList(HttpStatus.SC_SERVICE_UNAVAILABLE)) {
+
+            @Override
+            public boolean retryRequest(HttpRequest request, IOException exception, int execCount, HttpContext context) {
+                boolean retry = super.retryRequest(request, exception, execCount, context);
+                if (retry) {
+                    retried(context, 0);
+                }
+                return retry;
+            }
+
+            @Override
+            public boolean retryRequest(HttpResponse response, int execCount, HttpContext context) {
+                boolean retry = super.retryRequest(response, execCount, context);
+                if (retry) {
+                    retried(context, response.getCode());
+                }
+                return retry;
+            }
+        };
+    }
+
+    private void retried(HttpContext context, int status) {
+        Object metrics = context != null ? context.getAttribute(METRICS_ATTRIBUTE) : null;
+        if (metrics instanceof RequestMetrics) {
+            RequestMetrics requestMetrics = (RequestMetrics) metrics;
+            requestMetrics.retried();
+            metricsListener.onRetry(requestMetrics.getEndpoint(), requestMetrics.getMethod(), status);
+        }
+    }
+
+    public MetricsListener getMetricsListener() {
+        return metricsListener;
+    }
+
+    /**
+     * Sets the listener notified with the measures of each request, like
+     * latency, status code and bytes transferred.
+     *
+     * @param metricsListener the listener, {@code null} to stop measuring
+     * @see InMemoryMetrics
+     */
+    public void setMetricsListener(MetricsListener metricsListener) {
+        this.metricsListener = metricsListener != null ? metricsListener : MetricsListener.NOOP;
+    }
+
+    /**
+     * Discards all cached results.
+     */
+    public void invalidateCaches() {
+        operationCache.clear();
+        ResponseCache cache = responseCache;
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * Returns the bytes received for each endpoint, as transferred and once
+     * decoded.
+     *
+     * @return the statistics keyed by endpoint template
+     */
+    public Map<String, TransferStats> getTransferStats() {
+        return transferStatistics.stats();
+    }
+
+    public void resetTransferStats() {
+        transferStatistics.reset();
+    }
+
+    /* package */ RateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    /**
+     * Limits the requests sent with the same credentials, also by the
+     * {@link BitbucketCloudAsyncClient} that shares this client.
+     * <p>
+     * Regardless of this setting, requests are paused when the server
+     * answers {@code 429 Too Many Requests} or declares that the quota is
+     * exhausted or near to be.
+     *
+     * @param permitsPerSecond the sustained rate, {@code 0} means unlimited
+     * @param burst how many requests can be sent at once
+     */
+    public void setRateLimit(double permitsPerSecond, int burst) {
+        if (permitsPerSecond < 0) {
+            throw new IllegalArgumentException("Rate limit must be positive or zero");
+        }
+        rateLimiter.setRate(permitsPerSecond, burst);
+    }
+
+    public int getMaxRateLimitRetries() {
+        return maxRateLimitRetries;
+    }
+
+    /**
+     * Sets how many times a request rejected with
+     * {@code 429 Too Many Requests} is sent again after the time requested by
+     * the server.
+     *
+     * @param maxRateLimitRetries the number of retries, {@code 0} to fail
+     *        immediately
+     */
+    public void setMaxRateLimitRetries(int maxRateLimitRetries) {
+        this.maxRateLimitRetries = maxRateLimitRetries;
+    }
+
+    public boolean isCoalesceRequests() {
+        return coalesceRequests;
+    }
+
+    /**
+     * Sets if concurrent identical GET requests share a single HTTP exchange.
+     * <p>
+     * When enabled, a GET issued while the same URI is already requested
+     * with the same credentials waits the response of the first one. All
+     * callers receive the same deserialised object, or the same failure.
+     *
+     * @param coalesceRequests {@code true} to share in-flight GET requests
+     */
+    public void setCoalesceRequests(boolean coalesceRequests) {
+        this.coalesceRequests = coalesceRequests;
     }
 
     public boolean isDryRun() {
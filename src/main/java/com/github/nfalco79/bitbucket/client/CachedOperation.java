@@ -0,0 +1,49 @@
+/*
+ * Copyright 2022 Falco Nikolas
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.nfalco79.bitbucket.client;
+
+/**
+ * Read operations of {@link BitbucketCloudClient} whose result could be
+ * cached.
+ *
+ * @author Nikolas Falco
+ * @see BitbucketCloudClient#setCachePolicy(CachedOperation, java.time.Duration, int)
+ */
+public enum CachedOperation {
+    /**
+     * {@link BitbucketCloudClient#getUser(String)}.
+     */
+    USER,
+    /**
+     * {@link BitbucketCloudClient#getGroups(String)}.
+     */
+    GROUPS,
+    /**
+     * {@link BitbucketCloudClient#getGroupsPermissions(String, String)},
+     * invalidated by group permission updates and deletions.
+     */
+    GROUP_PERMISSIONS,
+    /**
+     * {@link BitbucketCloudClient#getBranchRestrictions(String, String)},
+     * invalidated by branch restriction updates.
+     */
+    BRANCH_RESTRICTIONS,
+    /**
+     * {@link BitbucketCloudClient#getWebhooks(String, String, String...)},
+     * invalidated when a web hook is added, updated or deleted.
+     */
+    WEBHOOKS
+}
@@ -51,6 +51,20 @@ public class ClientException extends IOException {
         }
     }
 
+    /**
+     * Create an exception for the given response status and content.
+     *
+     * @param status
+     *            the HTTP status code
+     * @param response
+     *            the response content, could be {@code null}
+     */
+    /* package */ ClientException(int status, String response) {
+        super("HTTP " + status);
+        this.status = status;
+        this.response = response;
+    }
+
     @Override
     public String getMessage() {
         String message = super.getMessage();
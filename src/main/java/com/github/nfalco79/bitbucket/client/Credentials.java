@@ -77,7 +77,8 @@ public abstract class Credentials {
     }
 
     /* package */ static class OAuth2Consumer extends Credentials {
-        private String accessToken;
+        // renewed by a thread, used by all others
+        private volatile String accessToken;
 
         private OAuth2Consumer(String user, String password) {
             super(user, password);
@@ -85,7 +86,7 @@ public abstract class Credentials {
 
         @Override
         public void apply(HttpRequest request) {
-            if ("/site/oauth2/access_token".equals(request.getRequestUri())) {
+            if (request.getRequestUri().endsWith("/site/oauth2/access_token")) {
                 request.setHeader(HttpHeaders.AUTHORIZATION, getBasicAuth(this));
             } else {
                 request.setHeader(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken);
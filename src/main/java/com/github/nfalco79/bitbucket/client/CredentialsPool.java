@@ -0,0 +1,129 @@
+/*
+ * Copyright 2022 Falco Nikolas
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.nfalco79.bitbucket.client;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A set of {@link Credentials} used in turn by {@link BitbucketCloudClient}
+ * to spread requests over the rate limit of each one.
+ * <p>
+ * All credentials must grant the same permissions, responses of a request are
+ * shared regardless of the credentials that have been used.
+ * <p>
+ * Credentials paused after a {@code 429 Too Many Requests} response are
+ * skipped until the server accepts requests again.
+ *
+ * @author Nikolas Falco
+ */
+public class CredentialsPool {
+
+    /**
+     * How credentials are chosen for each request.
+     */
+    public enum Strategy {
+        /**
+         * Each request uses the next credentials.
+         */
+        ROUND_ROBIN,
+        /**
+         * Each request uses the credentials with the largest remaining quota
+         * declared by the server, or the least used one.
+         */
+        LEAST_USED
+    }
+
+    private final Strategy strategy;
+    private final List<Credentials> credentials;
+    private final AtomicInteger cursor = new AtomicInteger();
+
+    /**
+     * Creates a round robin pool.
+     *
+     * @param credentials the credentials of the pool
+     */
+    public CredentialsPool(Credentials... credentials) {
+        this(Strategy.ROUND_ROBIN, Arrays.asList(credentials));
+    }
+
+    /**
+     * Creates a pool with the given strategy.
+     *
+     * @param strategy how credentials are chosen
+     * @param credentials the credentials of the pool
+     */
+    public CredentialsPool(Strategy strategy, Collection<? extends Credentials> credentials) {
+        this.strategy = Objects.requireNonNull(strategy);
+        if (credentials.isEmpty()) {
+            throw new IllegalArgumentException("At least one credentials is required");
+        }
+        this.credentials = Collections.unmodifiableList(new ArrayList<>(credentials));
+    }
+
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
+    public List<Credentials> getCredentials() {
+        return credentials;
+    }
+
+    /*
+     * Chooses the credentials of the next request, when all are paused the
+     * one that resumes first.
+     */
+    /* package */ Credentials next(RateLimiter limiter) {
+        int size = credentials.size();
+        if (size == 1) {
+            return credentials.get(0);
+        }
+        int start = strategy == Strategy.ROUND_ROBIN ? Math.floorMod(cursor.getAndIncrement(), size) : 0;
+        Credentials selected = null;
+        RateLimiter.Bucket selectedBucket = null;
+        for (int i = 0; i < size; i++) {
+            Credentials candidate = credentials.get((start + i) % size);
+            RateLimiter.Bucket bucket = limiter.bucket(candidate);
+            if (selected == null || isBetter(bucket, selectedBucket)) {
+                selected = candidate;
+                selectedBucket = bucket;
+            }
+            if (strategy == Strategy.ROUND_ROBIN && bucket.pausedFor() == 0) {
+                return candidate;
+            }
+        }
+        return selected;
+    }
+
+    private boolean isBetter(RateLimiter.Bucket candidate, RateLimiter.Bucket selected) {
+        long candidatePause = candidate.pausedFor();
+        long selectedPause = selected.pausedFor();
+        if (candidatePause != selectedPause) {
+            return candidatePause < selectedPause;
+        }
+        int candidateRemaining = candidate.getRemaining();
+        int selectedRemaining = selected.getRemaining();
+        if (candidateRemaining != selectedRemaining) {
+            return candidateRemaining > selectedRemaining;
+        }
+        return candidate.getRequests() < selected.getRequests();
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2022 Falco Nikolas
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.nfalco79.bitbucket.client;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Partial response specification, the fields of the returned objects
+ * requested to the server.
+ * <p>
+ * Paths are relative to the returned object, also for paginated requests
+ * where they are applied to each element of the page. Fields not returned by
+ * the server are left {@code null} in the model objects.
+ *
+ * <pre>
+ * Fields.only("slug", "uuid", "project.key");
+ * Fields.all().exclude("links", "owner.links");
+ * </pre>
+ *
+ * @author Nikolas Falco
+ */
+public final class Fields {
+
+    // required to follow and to split pages
+    private static final List<String> PAGE_FIELDS = Arrays.asList("next", "page", "pagelen", "size");
+
+    private final boolean restricted;
+    private final List<String> paths;
+
+    private Fields(boolean restricted, List<String> paths) {
+        this.restricted = restricted;
+        this.paths = Collections.unmodifiableList(paths);
+    }
+
+    /**
+     * Requests only the given fields.
+     *
+     * @param paths the dot separated path of the fields
+     * @return a new field specification
+     */
+    public static Fields only(String... paths) {
+        if (paths.length == 0) {
+            throw new IllegalArgumentException("At least one field is required");
+        }
+        return new Fields(true, validate(Arrays.asList(paths), ""));
+    }
+
+    /**
+     * Requests all the fields returned by default by the server.
+     *
+     * @return a new field specification
+     */
+    public static Fields all() {
+        return new Fields(false, Collections.emptyList());
+    }
+
+    /**
+     * Removes the given fields from the response.
+     *
+     * @param paths the dot separated path of the fields
+     * @return a new field specification
+     */
+    public Fields exclude(String... paths) {
+        return with(validate(Arrays.asList(paths), "-"));
+    }
+
+    /**
+     * Adds to the response fields not returned by default, like nested
+     * objects of a related resource.
+     *
+     * @param paths the dot separated path of the fields
+     * @return a new field specification
+     */
+    public Fields include(String... paths) {
+        return with(validate(Arrays.asList(paths), "+"));
+    }
+
+    private Fields with(List<String> other) {
+        List<String> merged = new ArrayList<>(paths);
+        merged.addAll(other);
+        return new Fields(restricted, merged);
+    }
+
+    private static List<String> validate(List<String> paths, String prefix) {
+        List<String> result = new ArrayList<>(paths.size());
+        for (String path : paths) {
+            if (path == null || path.isEmpty() || path.contains(",") || path.startsWith("+") || path.startsWith("-")) {
+                throw new IllegalArgumentException("Invalid field path " + path);
+            }
+            result.add(prefix + path);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the value of the {@code fields} query parameter.
+     *
+     * @param paginated if the fields are applied to the elements of a page
+     * @return the fields query parameter value, {@code null} when there is
+     *         nothing to ask
+     */
+    /* package */ String toQuery(boolean paginated) {
+        if (paths.isEmpty()) {
+            return null;
+        }
+        List<String> query = new ArrayList<>();
+        for (String path : paths) {
+            if (!paginated) {
+                query.add(path);
+            } else if (path.startsWith("+") || path.startsWith("-")) {
+                query.add(path.charAt(0) + "values." + path.substring(1));
+            } else {
+                query.add("values." + path);
+            }
+        }
+        if (paginated && restricted) {
+            query.addAll(PAGE_FIELDS);
+        }
+        return String.join(",", query);
+    }
+
+    @Override
+    public String toString() {
+        return String.valueOf(toQuery(false));
+    }
+}
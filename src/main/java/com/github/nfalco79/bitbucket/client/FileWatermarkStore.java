@@ -0,0 +1,96 @@
+/*
+ * Copyright 2022 Falco Nikolas
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.nfalco79.bitbucket.client;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Properties;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Stores watermarks in a properties file, rewritten atomically on each
+ * change.
+ *
+ * @author Nikolas Falco
+ */
+public class FileWatermarkStore implements WatermarkStore {
+
+    // slugs never contain it
+    private static final String SEEN_SUFFIX = "#seen";
+
+    private final Path file;
+    private final Properties watermarks = new Properties();
+
+    /**
+     * Creates a store backed by the given file, loaded if exists.
+     *
+     * @param file the properties file
+     * @throws IOException if the file exists but can not be read
+     */
+    public FileWatermarkStore(Path file) throws IOException {
+        this.file = file;
+        if (Files.exists(file)) {
+            try (InputStream is = Files.newInputStream(file)) {
+                watermarks.load(is);
+            }
+        }
+    }
+
+    @Override
+    public synchronized Instant get(String workspace, String repository) {
+        String value = watermarks.getProperty(workspace + '/' + repository);
+        return value != null ? Instant.parse(value) : null;
+    }
+
+    @Override
+    public synchronized Set<Integer> getSeen(String workspace, String repository) {
+        String value = watermarks.getProperty(workspace + '/' + repository + SEEN_SUFFIX);
+        if (value == null || value.isEmpty()) {
+            return Collections.emptySet();
+        }
+        return Arrays.stream(value.split(",")).map(Integer::valueOf).collect(Collectors.toSet());
+    }
+
+    @Override
+    public void put(String workspace, String repository, Instant watermark) throws IOException {
+        put(workspace, repository, watermark, Collections.emptySet());
+    }
+
+    @Override
+    public synchronized void put(String workspace, String repository, Instant watermark, Set<Integer> seen) throws IOException {
+        watermarks.setProperty(workspace + '/' + repository, watermark.toString());
+        watermarks.setProperty(workspace + '/' + repository + SEEN_SUFFIX, seen.stream().sorted().map(String::valueOf).collect(Collectors.joining(",")));
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path tmp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream os = Files.newOutputStream(tmp)) {
+                watermarks.store(os, null);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+}
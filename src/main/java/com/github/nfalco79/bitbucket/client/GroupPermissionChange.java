@@ -0,0 +1,87 @@
+/*
+ * Copyright 2022 Falco Nikolas
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.nfalco79.bitbucket.client;
+
+import java.util.Objects;
+
+import com.github.nfalco79.bitbucket.client.model.Permission;
+
+/**
+ * The access level a group must have on a repository.
+ *
+ * @author Nikolas Falco
+ * @see BitbucketCloudClient#applyGroupPermissions(String, java.util.Collection, int)
+ */
+public class GroupPermissionChange {
+
+    /**
+     * What has been done to apply a change.
+     */
+    public enum Outcome {
+        /**
+         * The group had already the given access level.
+         */
+        UNCHANGED,
+        /**
+         * The group access level has been granted or updated.
+         */
+        UPDATED,
+        /**
+         * The group access has been removed.
+         */
+        DELETED
+    }
+
+    private final String repository;
+    private final String group;
+    private final Permission permission;
+
+    /**
+     * Creates a change of the access level of a group.
+     *
+     * @param repository the repository name
+     * @param group the group slug
+     * @param permission the access level to set, {@link Permission#NONE} to
+     *        remove the group access
+     */
+    public GroupPermissionChange(String repository, String group, Permission permission) {
+        this.repository = Objects.requireNonNull(repository);
+        this.group = Objects.requireNonNull(group);
+        this.permission = Objects.requireNonNull(permission);
+    }
+
+    public String getRepository() {
+        return repository;
+    }
+
+    public String getGroup() {
+        return group;
+    }
+
+    public Permission getPermission() {
+        return permission;
+    }
+
+    /**
+     * Returns the key of this change in a {@link BatchResult}.
+     *
+     * @return repository and group slug separated by a slash
+     */
+    @Override
+    public String toString() {
+        return repository + "/" + group;
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2022 Falco Nikolas
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.nfalco79.bitbucket.client;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics listener that aggregates the measures in memory for each endpoint,
+ * to be exported periodically to a monitoring system.
+ *
+ * <pre>
+ * InMemoryMetrics metrics = new InMemoryMetrics();
+ * client.setMetricsListener(metrics);
+ * ...
+ * Histogram latency = metrics.getEndpoint("/2.0/repositories/{workspace}").getLatency();
+ * long p99 = latency.getValueAtPercentile(99);
+ * </pre>
+ *
+ * Times are recorded in nanoseconds.
+ *
+ * @author Nikolas Falco
+ */
+public class InMemoryMetrics implements MetricsListener {
+
+    /**
+     * Measures of the requests sent to an endpoint.
+     */
+    public static class EndpointMetrics {
+        private final String endpoint;
+        private final Histogram latency = new Histogram();
+        private final Histogram timeToFirstByte = new Histogram();
+        private final Histogram bindingTime = new Histogram();
+        private final Histogram pages = new Histogram();
+        private final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+        private final LongAdder retries = new LongAdder();
+        private final LongAdder bytesIn = new LongAdder();
+        private final LongAdder bytesOut = new LongAdder();
+
+        private EndpointMetrics(String endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        public String getEndpoint() {
+            return endpoint;
+        }
+
+        public Histogram getLatency() {
+            return latency;
+        }
+
+        public Histogram getTimeToFirstByte() {
+            return timeToFirstByte;
+        }
+
+        public Histogram getBindingTime() {
+            return bindingTime;
+        }
+
+        /**
+         * Returns the distribution of pages requested to read a whole
+         * collection.
+         *
+         * @return the pages per call
+         */
+        public Histogram getPages() {
+            return pages;
+        }
+
+        /**
+         * Returns how many responses have been received for each status
+         * code, {@code 0} counts the requests failed without a response.
+         *
+         * @return the response count keyed by status code
+         */
+        public Map<Integer, Long> getStatusCounts() {
+            Map<Integer, Long> counts = new TreeMap<>();
+            statuses.forEach((status, count) -> counts.put(status, count.sum()));
+            return counts;
+        }
+
+        public long getRetries() {
+            return retries.sum();
+        }
+
+        public long getBytesIn() {
+            return bytesIn.sum();
+        }
+
+        public long getBytesOut() {
+            return bytesOut.sum();
+        }
+
+        private void reset() {
+            latency.reset();
+            timeToFirstByte.reset();
+            bindingTime.reset();
+            pages.reset();
+            statuses.clear();
+            retries.reset();
+            bytesIn.reset();
+            bytesOut.reset();
+        }
+
+        @Override
+        public String toString() {
+            return endpoint + " latency: [" + latency + "], statuses: " + getStatusCounts() + ", retries: " + getRetries();
+        }
+    }
+
+    private final Map<String, EndpointMetrics> endpoints = new ConcurrentHashMap<>();
+    private final LongAdder tokenGrants = new LongAdder();
+    private final LongAdder tokenRenewals = new LongAdder();
+
+    @Override
+    public void onRequest(RequestMetrics metrics) {
+        EndpointMetrics endpoint = endpoint(metrics.getEndpoint());
+        endpoint.latency.record(metrics.getDurationNanos());
+        if (metrics.getTimeToFirstByteNanos() >= 0) {
+            endpoint.timeToFirstByte.record(metrics.getTimeToFirstByteNanos());
+        }
+        if (metrics.getBindingNanos() > 0) {
+            endpoint.bindingTime.record(metrics.getBindingNanos());
+        }
+        endpoint.statuses.computeIfAbsent(metrics.getStatus(), status -> new LongAdder()).increment();
+        endpoint.bytesIn.add(metrics.getBytesIn());
+        endpoint.bytesOut.add(metrics.getBytesOut());
+    }
+
+    @Override
+    public void onRetry(String endpoint, String method, int status) {
+        endpoint(endpoint).retries.increment();
+    }
+
+    @Override
+    public void onTokenGranted(boolean renewal) {
+        (renewal ? tokenRenewals : tokenGrants).increment();
+    }
+
+    @Override
+    public void onPaginatedCall(String endpoint, int pages, int elements) {
+        endpoint(endpoint).pages.record(pages);
+    }
+
+    private EndpointMetrics endpoint(String endpoint) {
+        return endpoints.computeIfAbsent(endpoint, EndpointMetrics::new);
+    }
+
+    /**
+     * Returns the measures of all endpoints requested so far.
+     *
+     * @return the endpoint metrics keyed by endpoint template
+     */
+    public Map<String, EndpointMetrics> getEndpoints() {
+        return Collections.unmodifiableMap(new TreeMap<>(endpoints));
+    }
+
+    /**
+     * Returns the measures of the given endpoint.
+     *
+     * @param endpoint the URI template of the endpoint
+     * @return the endpoint metrics, {@code null} if it has never been
+     *         requested
+     */
+    public EndpointMetrics getEndpoint(String endpoint) {
+        return endpoints.get(endpoint);
+    }
+
+    /**
+     * Returns the access tokens granted the first time for each consumer.
+     *
+     * @return the number of tokens granted
+     */
+    public long getTokenGrants() {
+        return tokenGrants.sum();
+    }
+
+    /**
+     * Returns the access tokens granted to replace an expired or rejected
+     * one.
+     *
+     * @return the number of tokens renewed
+     */
+    public long getTokenRenewals() {
+        return tokenRenewals.sum();
+    }
+
+    /**
+     * Discards all measures, endpoint metrics already returned are reset
+     * too.
+     */
+    public void reset() {
+        endpoints.values().forEach(EndpointMetrics::reset);
+        tokenGrants.reset();
+        tokenRenewals.reset();
+    }
+}
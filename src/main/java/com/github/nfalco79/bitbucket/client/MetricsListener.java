@@ -0,0 +1,73 @@
+/*
+ * Copyright 2022 Falco Nikolas
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.nfalco79.bitbucket.client;
+
+/**
+ * Receives the measures of the requests sent by {@link BitbucketCloudClient}.
+ * <p>
+ * Methods are invoked synchronously by the threads that send the requests,
+ * implementations must be thread safe and should not block.
+ *
+ * @author Nikolas Falco
+ * @see InMemoryMetrics
+ */
+public interface MetricsListener {
+
+    /**
+     * Listener that ignores all measures.
+     */
+    MetricsListener NOOP = new MetricsListener() {
+    };
+
+    /**
+     * Notified when a response has been handled or the request has failed
+     * without a response.
+     *
+     * @param metrics the measures of the request
+     */
+    default void onRequest(RequestMetrics metrics) {
+    }
+
+    /**
+     * Notified each time a request is going to be sent again.
+     *
+     * @param endpoint the URI template of the endpoint
+     * @param method the HTTP method
+     * @param status the status code of the response that caused the retry,
+     *        {@code 0} for a transport error
+     */
+    default void onRetry(String endpoint, String method, int status) {
+    }
+
+    /**
+     * Notified when an OAuth2 access token has been granted.
+     *
+     * @param renewal {@code true} if the token replaces an expired or
+     *        rejected one
+     */
+    default void onTokenGranted(boolean renewal) {
+    }
+
+    /**
+     * Notified when all pages of a collection have been read.
+     *
+     * @param endpoint the URI template of the endpoint
+     * @param pages the number of requested pages
+     * @param elements the number of elements of the collection
+     */
+    default void onPaginatedCall(String endpoint, int pages, int elements) {
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2022 Falco Nikolas
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.nfalco79.bitbucket.client;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Time bounded LRU caches of the result of read operations, one for each
+ * {@link CachedOperation}.
+ * <p>
+ * Results are retained as JSON trees, each hit binds a new copy so callers
+ * can freely modify the returned objects.
+ *
+ * @author Nikolas Falco
+ */
+/* package */ class OperationCache {
+
+    /**
+     * Loads the value when not cached.
+     *
+     * @param <T> the type of value
+     */
+    @FunctionalInterface
+    interface Loader<T> {
+        T load() throws ClientException;
+    }
+
+    private static class Entry {
+        private final long expiration;
+        private final JsonNode value;
+
+        Entry(long expiration, JsonNode value) {
+            this.expiration = expiration;
+            this.value = value;
+        }
+    }
+
+    private static class Region {
+        private final long ttl;
+        private final Map<String, Entry> entries;
+        private long hits;
+        private long misses;
+        // changes on each invalidation, a value loaded meanwhile is stale
+        private long generation;
+
+        Region(Duration ttl, int maxSize) {
+            this.ttl = ttl.toNanos();
+            this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                    return size() > maxSize;
+                }
+            };
+        }
+    }
+
+    private final ObjectMapper objectMapper;
+    private final Map<CachedOperation, Region> regions = new EnumMap<>(CachedOperation.class);
+
+    OperationCache(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    synchronized void setPolicy(CachedOperation operation, Duration ttl, int maxSize) {
+        if (maxSize == 0 || ttl.isZero()) {
+            regions.remove(operation);
+        } else {
+            regions.put(operation, new Region(ttl, maxSize));
+        }
+    }
+
+    <T> T get(CachedOperation operation, String key, JavaType type, Loader<T> loader) throws ClientException {
+        JsonNode cached;
+        long generation;
+        synchronized (this) {
+            Region region = regions.get(operation);
+            generation = region != null ? region.generation : 0;
+            if (region == null) {
+                cached = null;
+            } else {
+                Entry entry = region.entries.get(key);
+                if (entry != null && entry.expiration - System.nanoTime() > 0) {
+                    region.hits++;
+                    cached = entry.value;
+                } else {
+                    region.misses++;
+                    region.entries.remove(key);
+                    cached = null;
+                }
+            }
+        }
+        if (cached != null) {
+            try {
+                return objectMapper.readerFor(type).readValue(cached);
+            } catch (IOException e) {
+                throw new ClientException("Fail to copy cached value", e);
+            }
+        }
+
+        T value = loader.load();
+        if (value == null) {
+            return null;
+        }
+        JsonNode tree = objectMapper.valueToTree(value);
+        synchronized (this) {
+            Region region = regions.get(operation);
+            if (region != null && region.generation == generation) {
+                region.entries.put(key, new Entry(System.nanoTime() + region.ttl, tree));
+            }
+        }
+        return value;
+    }
+
+    synchronized void invalidate(CachedOperation operation, String key) {
+        Region region = regions.get(operation);
+        if (region != null) {
+            region.entries.remove(key);
+            region.generation++;
+        }
+    }
+
+    synchronized void clear() {
+        regions.values().forEach(region -> {
+            region.entries.clear();
+            region.generation++;
+        });
+    }
+
+    synchronized CacheStats stats(CachedOperation operation) {
+        Region region = regions.get(operation);
+        return region != null ? new CacheStats(region.hits, region.misses, region.entries.size()) : null;
+    }
+}
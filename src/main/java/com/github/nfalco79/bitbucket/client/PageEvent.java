@@ -0,0 +1,57 @@
+/*
+ * Copyright 2022 Falco Nikolas
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.nfalco79.bitbucket.client;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event of a collection read page by page, which contains
+ * the {@link RequestEvent} of each page.
+ *
+ * @author Nikolas Falco
+ */
+@Name(PageEvent.NAME)
+@Label("Bitbucket Pages")
+@Category("Bitbucket")
+@Description("Collection read from the Bitbucket Cloud REST API following all pages")
+/* package */ class PageEvent extends Event {
+
+    /* package */ static final String NAME = "com.github.nfalco79.bitbucket.BitbucketPage";
+
+    @Label("Endpoint")
+    @Description("URI template of the endpoint")
+    String endpoint;
+
+    @Label("Pages")
+    int pages;
+
+    @Label("Elements")
+    int elements;
+
+    void commit(String endpoint, int pages, int elements) {
+        end();
+        if (shouldCommit()) {
+            this.endpoint = endpoint;
+            this.pages = pages;
+            this.elements = elements;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2022 Falco Nikolas
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.nfalco79.bitbucket.client;
+
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.github.nfalco79.bitbucket.client.internal.rest.PaginatedResponse;
+
+/**
+ * Cursor over a paginated resource that requests the next page only when all
+ * elements of the current page has been consumed.
+ * <p>
+ * Only one page is referenced at time. Once closed no more page will be
+ * requested to the server.
+ *
+ * @author Nikolas Falco
+ * @param <T> the type of elements in the pages
+ */
+/* package */ class PageIterator<T> implements Iterator<T>, AutoCloseable {
+
+    /**
+     * Loads a single page from the given URI.
+     *
+     * @param <T> the type of elements in the page
+     */
+    @FunctionalInterface
+    interface PageLoader<T> {
+        PaginatedResponse<T> load(String uri) throws ClientException;
+    }
+
+    private final PageLoader<T> loader;
+    private String next;
+    private Iterator<T> current = Collections.emptyIterator();
+    private boolean closed;
+
+    PageIterator(String uri, PageLoader<T> loader) {
+        this.next = uri;
+        this.loader = loader;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!closed && !current.hasNext() && next != null) {
+            try {
+                PaginatedResponse<T> page = loader.load(next);
+                next = page.getNext();
+                current = page.getValues().iterator();
+            } catch (ClientException e) {
+                close();
+                throw new UncheckedIOException(e);
+            }
+        }
+        return !closed && current.hasNext();
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return current.next();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        next = null;
+        current = Collections.emptyIterator();
+    }
+
+    /**
+     * Returns a sequential stream backed by this iterator, closing the stream
+     * closes this cursor.
+     *
+     * @return a lazy stream over all elements of all pages
+     */
+    public Stream<T> stream() {
+        Spliterator<T> spliterator = Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(this::close);
+    }
+}
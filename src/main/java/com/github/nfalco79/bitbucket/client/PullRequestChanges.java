@@ -0,0 +1,58 @@
+/*
+ * Copyright 2022 Falco Nikolas
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.nfalco79.bitbucket.client;
+
+import java.time.Instant;
+import java.util.List;
+
+import com.github.nfalco79.bitbucket.client.model.PullRequest;
+
+/**
+ * Pull requests changed since the previous synchronisation of a repository.
+ *
+ * @author Nikolas Falco
+ * @see BitbucketCloudClient#syncPullRequests(String, String, WatermarkStore)
+ */
+public class PullRequestChanges {
+
+    private final List<PullRequest> pullRequests;
+    private final Instant watermark;
+
+    /* package */ PullRequestChanges(List<PullRequest> pullRequests, Instant watermark) {
+        this.pullRequests = pullRequests;
+        this.watermark = watermark;
+    }
+
+    /**
+     * Returns the pull requests created or updated after the previous
+     * watermark, the most recently updated first.
+     *
+     * @return the changed pull requests
+     */
+    public List<PullRequest> getPullRequests() {
+        return pullRequests;
+    }
+
+    /**
+     * Returns the update time of the newest pull request seen so far.
+     *
+     * @return the new watermark, {@code null} if the repository has no pull
+     *         request yet
+     */
+    public Instant getWatermark() {
+        return watermark;
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2022 Falco Nikolas
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.nfalco79.bitbucket.client;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
+import java.util.Date;
+import java.util.regex.Pattern;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Filter and sort of a collection evaluated by the server, expressed in the
+ * Bitbucket query language (BBQL).
+ *
+ * <pre>
+ * Query.eq("state", "OPEN") //
+ *      .and(Query.gt("updated_on", since)) //
+ *      .sortDescending("updated_on");
+ * </pre>
+ *
+ * String values are quoted and escaped, dates are formatted as ISO-8601.
+ *
+ * @author Nikolas Falco
+ */
+public final class Query {
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSxxx");
+    private static final Pattern FIELD = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*(\\.[A-Za-z_][A-Za-z0-9_]*)*");
+
+    private final String expression;
+    // the operator joining the terms, null for a single comparison
+    private final String operator;
+    private final String sort;
+
+    private Query(String expression, String operator, String sort) {
+        this.expression = expression;
+        this.operator = operator;
+        this.sort = sort;
+    }
+
+    public static Query eq(String field, Object value) {
+        return compare(field, "=", value);
+    }
+
+    public static Query ne(String field, Object value) {
+        return compare(field, "!=", value);
+    }
+
+    public static Query gt(String field, Object value) {
+        return compare(field, ">", value);
+    }
+
+    public static Query ge(String field, Object value) {
+        return compare(field, ">=", value);
+    }
+
+    public static Query lt(String field, Object value) {
+        return compare(field, "<", value);
+    }
+
+    public static Query le(String field, Object value) {
+        return compare(field, "<=", value);
+    }
+
+    /**
+     * Matches fields that contain the given text, case insensitive.
+     *
+     * @param field the dot separated field path
+     * @param text the text to search
+     * @return a new query
+     */
+    public static Query contains(String field, String text) {
+        return compare(field, "~", text);
+    }
+
+    public static Query notContains(String field, String text) {
+        return compare(field, "!~", text);
+    }
+
+    /**
+     * Returns a query that matches all elements, useful to sort only.
+     *
+     * @return an empty query
+     */
+    public static Query all() {
+        return new Query(null, null, null);
+    }
+
+    private static Query compare(String field, String operator, Object value) {
+        return new Query(field(field) + ' ' + operator + ' ' + literal(value), null, null);
+    }
+
+    public Query and(Query other) {
+        return join("AND", other);
+    }
+
+    public Query or(Query other) {
+        return join("OR", other);
+    }
+
+    private Query join(String joinOperator, Query other) {
+        if (other.expression == null) {
+            return this;
+        } else if (expression == null) {
+            return new Query(other.expression, other.operator, sort);
+        }
+        return new Query(term(this, joinOperator) + ' ' + joinOperator + ' ' + term(other, joinOperator), joinOperator, sort);
+    }
+
+    private static String term(Query query, String joinOperator) {
+        if (query.operator == null || query.operator.equals(joinOperator)) {
+            return query.expression;
+        }
+        return '(' + query.expression + ')';
+    }
+
+    /**
+     * Sorts results by the given field in ascending order.
+     *
+     * @param field the dot separated field path
+     * @return a new query
+     */
+    public Query sortAscending(String field) {
+        return new Query(expression, operator, field(field));
+    }
+
+    /**
+     * Sorts results by the given field in descending order.
+     *
+     * @param field the dot separated field path
+     * @return a new query
+     */
+    public Query sortDescending(String field) {
+        return new Query(expression, operator, '-' + field(field));
+    }
+
+    /**
+     * Returns the value of the {@code q} query parameter.
+     *
+     * @return the BBQL expression, {@code null} if there is no filter
+     */
+    public String getExpression() {
+        return expression;
+    }
+
+    /**
+     * Returns the value of the {@code sort} query parameter.
+     *
+     * @return the sort field, {@code null} if there is no sort
+     */
+    public String getSort() {
+        return sort;
+    }
+
+    private static String field(String field) {
+        if (field == null || !FIELD.matcher(field).matches()) {
+            throw new IllegalArgumentException("Invalid field " + field);
+        }
+        return field;
+    }
+
+    /* package */ static String literal(Object value) {
+        if (value == null) {
+            return "null";
+        } else if (value instanceof Number || value instanceof Boolean) {
+            return value.toString();
+        } else if (value instanceof Instant) {
+            return DATE_FORMAT.format(((Instant) value).atOffset(ZoneOffset.UTC));
+        } else if (value instanceof Date) {
+            return literal(((Date) value).toInstant());
+        } else if (value instanceof OffsetDateTime || value instanceof ZonedDateTime) {
+            return DATE_FORMAT.format((TemporalAccessor) value);
+        } else if (value instanceof Enum) {
+            return quote(enumValue((Enum<?>) value));
+        }
+        return quote(value.toString());
+    }
+
+    /*
+     * Model enums are serialised with the JSON name.
+     */
+    private static String enumValue(Enum<?> value) {
+        try {
+            JsonProperty property = value.getDeclaringClass().getField(value.name()).getAnnotation(JsonProperty.class);
+            if (property != null && !property.value().isEmpty()) {
+                return property.value();
+            }
+        } catch (NoSuchFieldException e) {
+            // not possible for an enum constant
+        }
+        return value.name();
+    }
+
+    private static String quote(String value) {
+        StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+        for (char c : value.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                sb.append('\\');
+            }
+            sb.append(c);
+        }
+        return sb.append('"').toString();
+    }
+
+    @Override
+    public String toString() {
+        return expression == null ? "" : expression;
+    }
+}
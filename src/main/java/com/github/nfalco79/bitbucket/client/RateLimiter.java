@@ -0,0 +1,243 @@
+/*
+ * Copyright 2022 Falco Nikolas
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.nfalco79.bitbucket.client;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hc.client5.http.utils.DateUtils;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.HttpStatus;
+
+/**
+ * Schedules requests of each credentials according to a token bucket and
+ * to the rate limit hints sent by the server.
+ * <p>
+ * A {@code 429 Too Many Requests} response pauses all requests of the same
+ * credentials for the time given by the {@code Retry-After} header, or with
+ * an exponential back off when missing.
+ *
+ * @author Nikolas Falco
+ */
+/* package */ class RateLimiter {
+
+    /* package */ static final String HEADER_LIMIT = "X-RateLimit-Limit";
+    /* package */ static final String HEADER_REMAINING = "X-RateLimit-Remaining";
+    /* package */ static final String HEADER_RESET = "X-RateLimit-Reset";
+    /* package */ static final String HEADER_NEAR_LIMIT = "X-RateLimit-NearLimit";
+
+    private static final long MAX_BACKOFF = TimeUnit.MINUTES.toNanos(1);
+
+    /**
+     * Source of time of the buckets, replaced in tests.
+     */
+    interface Clock {
+        Clock SYSTEM = new Clock() {
+            @Override
+            public long nanoTime() {
+                return System.nanoTime();
+            }
+
+            @Override
+            public void sleep(long nanos) throws InterruptedException {
+                TimeUnit.NANOSECONDS.sleep(nanos);
+            }
+        };
+
+        long nanoTime();
+
+        void sleep(long nanos) throws InterruptedException;
+    }
+
+    /**
+     * Token bucket of a single credentials.
+     */
+    static class Bucket {
+        private final Clock clock;
+        private double rate;
+        private double capacity;
+        private double tokens;
+        private long lastRefill;
+        private long pausedUntil;
+        // declared by server, unknown until the first response
+        private int remaining = Integer.MAX_VALUE;
+        private long requests;
+
+        Bucket(Clock clock, double rate, int burst) {
+            this.clock = clock;
+            this.lastRefill = clock.nanoTime();
+            this.pausedUntil = lastRefill;
+            setRate(rate, burst);
+            this.tokens = capacity;
+        }
+
+        synchronized void setRate(double rate, int burst) {
+            this.rate = rate;
+            this.capacity = Math.max(1, burst);
+            this.tokens = Math.min(tokens, capacity);
+        }
+
+        /*
+         * Takes a token, also in advance, and returns how long the caller
+         * must wait before to use it.
+         */
+        synchronized long reserve() {
+            long now = clock.nanoTime();
+            long wait = 0;
+            requests++;
+            if (rate > 0) {
+                tokens = Math.min(capacity, tokens + (now - lastRefill) * rate / TimeUnit.SECONDS.toNanos(1));
+                lastRefill = now;
+                tokens -= 1;
+                if (tokens < 0) {
+                    wait = (long) (-tokens / rate * TimeUnit.SECONDS.toNanos(1));
+                }
+            }
+            return Math.max(wait, pausedUntil - now);
+        }
+
+        void acquire() throws InterruptedException {
+            long wait = reserve();
+            if (wait > 0) {
+                clock.sleep(wait);
+            }
+        }
+
+        synchronized void pause(long nanos) {
+            pausedUntil = Math.max(pausedUntil, clock.nanoTime() + nanos);
+        }
+
+        /*
+         * Never allow more than the remaining requests declared by server.
+         */
+        synchronized void limitTokens(int remaining) {
+            this.remaining = remaining;
+            tokens = Math.min(tokens, remaining);
+        }
+
+        synchronized long pausedFor() {
+            return Math.max(0, pausedUntil - clock.nanoTime());
+        }
+
+        synchronized int getRemaining() {
+            return remaining;
+        }
+
+        synchronized long getRequests() {
+            return requests;
+        }
+    }
+
+    private final Map<Credentials, Bucket> buckets = Collections.synchronizedMap(new WeakHashMap<>());
+    private volatile Clock clock = Clock.SYSTEM;
+    private volatile double rate;
+    private volatile int burst = 1;
+
+    /*
+     * Zero rate means no limit until the server asks to slow down.
+     */
+    void setRate(double rate, int burst) {
+        this.rate = rate;
+        this.burst = burst;
+        synchronized (buckets) {
+            buckets.values().forEach(bucket -> bucket.setRate(rate, burst));
+        }
+    }
+
+    /*
+     * Applies to the buckets created afterwards.
+     */
+    void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    Bucket bucket(Credentials credentials) {
+        return buckets.computeIfAbsent(credentials, key -> new Bucket(clock, rate, burst));
+    }
+
+    /**
+     * Updates the bucket with the rate limit headers of the response.
+     *
+     * @param bucket of the credentials used by the request
+     * @param response the server response
+     * @param attempt how many times the request has been already rejected
+     */
+    void onResponse(Bucket bucket, HttpResponse response, int attempt) {
+        Integer limit = intHeader(response, HEADER_LIMIT);
+        if (limit != null) {
+            if ("true".equalsIgnoreCase(headerValue(response, HEADER_NEAR_LIMIT))) {
+                // hourly quota, spread the remaining requests
+                bucket.setRate(Math.min(rate > 0 ? rate : Double.MAX_VALUE, limit / 3600d), burst);
+            } else {
+                bucket.setRate(rate, burst);
+            }
+        }
+        Integer remaining = intHeader(response, HEADER_REMAINING);
+        if (remaining != null) {
+            bucket.limitTokens(remaining);
+            Long reset = longHeader(response, HEADER_RESET);
+            if (remaining == 0 && reset != null) {
+                bucket.pause(nanosUntil(Instant.ofEpochSecond(reset)));
+            }
+        }
+        if (response.getCode() == HttpStatus.SC_TOO_MANY_REQUESTS) {
+            Long retryAfter = retryAfter(response);
+            bucket.pause(retryAfter != null ? retryAfter : Math.min(MAX_BACKOFF, TimeUnit.SECONDS.toNanos(1L << Math.min(attempt, 30))));
+        }
+    }
+
+    private Long retryAfter(HttpResponse response) {
+        String value = headerValue(response, HttpHeaders.RETRY_AFTER);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return TimeUnit.SECONDS.toNanos(Long.parseLong(value.trim()));
+        } catch (NumberFormatException e) {
+            Instant date = DateUtils.parseStandardDate(value);
+            return date != null ? nanosUntil(date) : null;
+        }
+    }
+
+    private long nanosUntil(Instant instant) {
+        return Math.max(0, Duration.between(Instant.now(), instant).toNanos());
+    }
+
+    private String headerValue(HttpResponse response, String name) {
+        Header header = response.getFirstHeader(name);
+        return header != null ? header.getValue() : null;
+    }
+
+    private Integer intHeader(HttpResponse response, String name) {
+        Long value = longHeader(response, name);
+        return value != null ? (int) Math.min(Integer.MAX_VALUE, value) : null;
+    }
+
+    private Long longHeader(HttpResponse response, String name) {
+        String value = headerValue(response, name);
+        try {
+            return value != null ? Long.parseLong(value.trim()) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2022 Falco Nikolas
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.nfalco79.bitbucket.client;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Changes applied to a repository to reach the desired state, or that would
+ * be applied in {@link BitbucketCloudClient#isDryRun() dry run} mode.
+ *
+ * @author Nikolas Falco
+ * @param <T> the type of reconciled objects
+ */
+public class ReconcileReport<T> {
+
+    private final List<T> created = new ArrayList<>();
+    private final List<T> updated = new ArrayList<>();
+    private final List<T> deleted = new ArrayList<>();
+
+    /* package */ void created(T value) {
+        created.add(value);
+    }
+
+    /* package */ void updated(T value) {
+        updated.add(value);
+    }
+
+    /* package */ void deleted(T value) {
+        deleted.add(value);
+    }
+
+    /**
+     * Returns the desired objects missing in the repository.
+     *
+     * @return the created objects
+     */
+    public List<T> getCreated() {
+        return Collections.unmodifiableList(created);
+    }
+
+    /**
+     * Returns the desired objects that replaced a different one.
+     *
+     * @return the updated objects
+     */
+    public List<T> getUpdated() {
+        return Collections.unmodifiableList(updated);
+    }
+
+    /**
+     * Returns the existing objects not desired.
+     *
+     * @return the deleted objects
+     */
+    public List<T> getDeleted() {
+        return Collections.unmodifiableList(deleted);
+    }
+
+    /**
+     * Returns if the repository was not already in the desired state.
+     *
+     * @return {@code true} if at least a change was needed
+     */
+    public boolean isChanged() {
+        return !created.isEmpty() || !updated.isEmpty() || !deleted.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "created: " + created.size() + ", updated: " + updated.size() + ", deleted: " + deleted.size();
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2022 Falco Nikolas
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.nfalco79.bitbucket.client;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+
+/**
+ * Computes the minimal changes to bring the objects of a repository to the
+ * desired state and applies them.
+ * <p>
+ * Objects are paired by a key, an existing object with the same key of a
+ * desired one is updated when not equivalent. Existing objects with a key
+ * that is not desired are deleted only when pruning, duplicates of a desired
+ * key always.
+ *
+ * @author Nikolas Falco
+ * @param <T> the type of reconciled objects
+ */
+/* package */ class Reconciler<T> {
+
+    @FunctionalInterface
+    interface Mutation<T> {
+        void apply(T value) throws ClientException;
+    }
+
+    @FunctionalInterface
+    interface Update<T> {
+        void apply(T current, T desired) throws ClientException;
+    }
+
+    private final Function<T, Object> key;
+    private final BiPredicate<T, T> equivalent;
+    private Mutation<T> create;
+    private Update<T> update;
+    private Mutation<T> delete;
+
+    Reconciler(Function<T, Object> key, BiPredicate<T, T> equivalent) {
+        this.key = key;
+        this.equivalent = equivalent;
+    }
+
+    Reconciler<T> onCreate(Mutation<T> create) {
+        this.create = create;
+        return this;
+    }
+
+    Reconciler<T> onUpdate(Update<T> update) {
+        this.update = update;
+        return this;
+    }
+
+    Reconciler<T> onDelete(Mutation<T> delete) {
+        this.delete = delete;
+        return this;
+    }
+
+    ReconcileReport<T> reconcile(List<T> current, Collection<T> desired, boolean prune) throws ClientException {
+        Map<Object, T> desiredByKey = new LinkedHashMap<>();
+        for (T value : desired) {
+            if (desiredByKey.putIfAbsent(key.apply(value), value) != null) {
+                throw new IllegalArgumentException("Duplicated desired state " + key.apply(value));
+            }
+        }
+
+        ReconcileReport<T> report = new ReconcileReport<>();
+        Map<Object, T> matched = new LinkedHashMap<>();
+        for (T value : current) {
+            Object valueKey = key.apply(value);
+            T target = desiredByKey.get(valueKey);
+            if (target != null && !matched.containsKey(valueKey)) {
+                matched.put(valueKey, value);
+                if (!equivalent.test(value, target)) {
+                    update.apply(value, target);
+                    report.updated(target);
+                }
+            } else if (target != null || prune) {
+                delete.apply(value);
+                report.deleted(value);
+            }
+        }
+        for (Map.Entry<Object, T> entry : desiredByKey.entrySet()) {
+            if (!matched.containsKey(entry.getKey())) {
+                create.apply(entry.getValue());
+                report.created(entry.getValue());
+            }
+        }
+        return report;
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2022 Falco Nikolas
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.nfalco79.bitbucket.client;
+
+import com.github.nfalco79.bitbucket.client.model.Repository;
+
+/**
+ * Work to execute on a single repository of a workspace.
+ *
+ * @author Nikolas Falco
+ * @param <R> the type of result
+ * @see BitbucketCloudClient#forEachRepository(String, int, RepositoryTask)
+ */
+@FunctionalInterface
+public interface RepositoryTask<R> {
+
+    /**
+     * Executes this task on the given repository.
+     *
+     * @param repository the repository to process
+     * @return the result of this task for the repository
+     * @throws ClientException in case of failure of a Bitbucket request
+     */
+    R apply(Repository repository) throws ClientException;
+}
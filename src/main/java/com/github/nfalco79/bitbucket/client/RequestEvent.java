@@ -0,0 +1,91 @@
+/*
+ * Copyright 2022 Falco Nikolas
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.nfalco79.bitbucket.client;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight recorder event of a request sent by {@link BitbucketCloudClient},
+ * the event duration is the request latency.
+ *
+ * @author Nikolas Falco
+ */
+@Name(RequestEvent.NAME)
+@Label("Bitbucket Request")
+@Category("Bitbucket")
+@Description("HTTP request sent to the Bitbucket Cloud REST API")
+@StackTrace(false)
+/* package */ class RequestEvent extends Event {
+
+    /* package */ static final String NAME = "com.github.nfalco79.bitbucket.BitbucketRequest";
+
+    @Label("Endpoint")
+    @Description("URI template of the endpoint")
+    String endpoint;
+
+    @Label("Method")
+    String method;
+
+    @Label("Status")
+    @Description("Status code of the response, 0 when no response has been received")
+    int status;
+
+    @Label("Retries")
+    int retries;
+
+    @Label("Bytes In")
+    @DataAmount
+    long bytesIn;
+
+    @Label("Bytes Out")
+    @DataAmount
+    long bytesOut;
+
+    @Label("Time To First Byte")
+    @Timespan
+    long timeToFirstByte;
+
+    @Label("Binding Time")
+    @Description("Time spent to deserialize the response body")
+    @Timespan
+    long bindingTime;
+
+    /*
+     * Fields are set only when the event is recorded, to keep the cost low
+     * when the recording is off.
+     */
+    void commit(RequestMetrics metrics) {
+        end();
+        if (shouldCommit()) {
+            endpoint = metrics.getEndpoint();
+            method = metrics.getMethod();
+            status = metrics.getStatus();
+            retries = metrics.getRetries();
+            bytesIn = metrics.getBytesIn();
+            bytesOut = metrics.getBytesOut();
+            timeToFirstByte = metrics.getTimeToFirstByteNanos();
+            bindingTime = metrics.getBindingNanos();
+            commit();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2022 Falco Nikolas
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.nfalco79.bitbucket.client;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures of a single request sent by {@link BitbucketCloudClient}, passed
+ * to the {@link MetricsListener} once the response has been handled.
+ *
+ * @author Nikolas Falco
+ */
+public class RequestMetrics {
+
+    private final String endpoint;
+    private final String method;
+    private final long startNanos;
+    private final long bytesOut;
+    private int status;
+    private int retries;
+    private long timeToFirstByteNanos = -1;
+    private long bindingNanos;
+    private long durationNanos;
+    /* package */ final LongAdder bytesIn = new LongAdder();
+
+    /* package */ RequestMetrics(String endpoint, String method, int retries, long bytesOut) {
+        this.endpoint = endpoint;
+        this.method = method;
+        this.retries = retries;
+        this.bytesOut = Math.max(0, bytesOut);
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Returns the URI template of the endpoint.
+     *
+     * @return the endpoint path template
+     */
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * Returns the status code of the response.
+     *
+     * @return the status code, {@code 0} when no response has been received
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * Returns how many times the request has been sent again, because of a
+     * transport error, an unavailable server or a rate limit.
+     *
+     * @return the number of retries before this response
+     */
+    public int getRetries() {
+        return retries;
+    }
+
+    /**
+     * Returns the time elapsed until the response headers were received,
+     * retries included.
+     *
+     * @return the nanoseconds to the first byte, {@code -1} when no response
+     *         has been received
+     */
+    public long getTimeToFirstByteNanos() {
+        return timeToFirstByteNanos;
+    }
+
+    /**
+     * Returns the time spent to bind the response body to the model, which
+     * for paginated responses includes the read of the body.
+     *
+     * @return the deserialization nanoseconds
+     */
+    public long getBindingNanos() {
+        return bindingNanos;
+    }
+
+    /**
+     * Returns the time elapsed from the send of the request to the end of
+     * the response handling, the wait for the rate limit excluded.
+     *
+     * @return the latency nanoseconds
+     */
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    /**
+     * Returns the bytes of the response body as received.
+     *
+     * @return the transferred bytes
+     */
+    public long getBytesIn() {
+        return bytesIn.sum();
+    }
+
+    /**
+     * Returns the length of the request body.
+     *
+     * @return the sent bytes
+     */
+    public long getBytesOut() {
+        return bytesOut;
+    }
+
+    /* package */ void responded(int status) {
+        this.status = status;
+        this.timeToFirstByteNanos = System.nanoTime() - startNanos;
+    }
+
+    /* package */ void retried() {
+        retries++;
+    }
+
+    /* package */ void bound(long nanos) {
+        bindingNanos += nanos;
+    }
+
+    /* package */ void completed() {
+        durationNanos = System.nanoTime() - startNanos;
+    }
+
+    @Override
+    public String toString() {
+        return method + " " + endpoint + " status: " + status + ", retries: " + retries + ", duration: " + durationNanos + "ns";
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2022 Falco Nikolas
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.nfalco79.bitbucket.client;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.HttpRequest;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.github.nfalco79.bitbucket.client.internal.rest.PageReader;
+import com.github.nfalco79.bitbucket.client.internal.rest.PaginatedResponse;
+
+/**
+ * Least recently used cache of the deserialised GET responses, keyed by URI
+ * and credentials, with the validators to revalidate them with a conditional
+ * request.
+ *
+ * @author Nikolas Falco
+ */
+/* package */ class ResponseCache {
+
+    /**
+     * A deserialised response and its validators.
+     */
+    static class Entry {
+        private final String etag;
+        private final String lastModified;
+        private final Object value;
+
+        Entry(String etag, String lastModified, Object value) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.value = value;
+        }
+
+        void applyConditions(HttpRequest request) {
+            if (etag != null) {
+                request.setHeader(HttpHeaders.IF_NONE_MATCH, etag);
+            }
+            if (lastModified != null) {
+                request.setHeader(HttpHeaders.IF_MODIFIED_SINCE, lastModified);
+            }
+        }
+
+        <T> T value(Object type) {
+            return valueFor(value, type);
+        }
+    }
+
+    private final int maxSize;
+    private final Map<String, Entry> entries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    ResponseCache(int maxSize) {
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > ResponseCache.this.maxSize;
+            }
+        };
+    }
+
+    /*
+     * The same URI could be deserialised into different types.
+     */
+    static String key(String uri, Object type) {
+        if (type instanceof Class) {
+            return ((Class<?>) type).getName() + ' ' + uri;
+        } else if (type instanceof TypeReference) {
+            return ((TypeReference<?>) type).getType().getTypeName() + ' ' + uri;
+        } else if (type instanceof PageReader) {
+            return "page " + uri;
+        }
+        return null;
+    }
+
+    /*
+     * Credentials of a pool could have different permissions, a response is
+     * never served to a request made by other credentials.
+     */
+    static String key(Credentials credentials, String uri, Object type) {
+        String key = key(uri, type);
+        if (key == null) {
+            return null;
+        }
+        String user = credentials.getUser();
+        return (user != null ? user : "") + ' ' + key;
+    }
+
+    /*
+     * Elements of a page are handed to the consumer of the reader so the
+     * cache retains them apart.
+     */
+    static PaginatedResponse<Object> snapshot(PaginatedResponse<?> page, List<Object> values) {
+        PaginatedResponse<Object> snapshot = new PaginatedResponse<Object>() {};
+        snapshot.setNext(page.getNext());
+        snapshot.setPage(page.getPage());
+        snapshot.setPagelen(page.getPagelen());
+        snapshot.setSize(page.getSize());
+        snapshot.setValues(Collections.unmodifiableList(values));
+        return snapshot;
+    }
+
+    /*
+     * Pages are retained as snapshot, their elements are handed to the
+     * consumer of the reader.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> T valueFor(Object value, Object type) {
+        if (type instanceof PageReader && value != null) {
+            return (T) ((PageReader<Object>) type).replay((PaginatedResponse<?>) value);
+        }
+        return (T) value;
+    }
+
+    synchronized Entry get(String key) {
+        return entries.get(key);
+    }
+
+    synchronized void put(String key, Entry entry) {
+        entries.put(key, entry);
+    }
+
+    synchronized void remove(String key) {
+        entries.remove(key);
+    }
+
+    synchronized void clear() {
+        entries.clear();
+    }
+
+    void hit() {
+        hits.incrementAndGet();
+    }
+
+    void miss() {
+        misses.incrementAndGet();
+    }
+
+    synchronized CacheStats stats() {
+        return new CacheStats(hits.get(), misses.get(), entries.size());
+    }
+}
@@ -0,0 +1,398 @@
+/*
+ * Copyright 2022 Falco Nikolas
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.nfalco79.bitbucket.client;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import com.github.nfalco79.bitbucket.client.model.BranchRestriction;
+import com.github.nfalco79.bitbucket.client.model.GroupPermission;
+import com.github.nfalco79.bitbucket.client.model.Repository;
+import com.github.nfalco79.bitbucket.client.model.Webhook;
+
+/**
+ * Persistent snapshot of the state of a workspace, to avoid downloading it
+ * again at each startup.
+ * <p>
+ * Changes are appended to the file, the last record of a repository
+ * supersedes the previous ones. Records are read through a memory mapping
+ * of the file, indexed by repository slug when the store is opened, records
+ * appended later are mapped separately when first read. A truncated or
+ * corrupted last record, left by an interrupted write, is discarded while a
+ * corrupted record followed by any valid record fails the open, leaving the
+ * file untouched.
+ * Use {@link #compact()} to drop the superseded records.
+ * <p>
+ * Record layout:
+ *
+ * <pre>
+ * int    length of the following bytes
+ * int    CRC32 of the following bytes
+ * byte   kind
+ * short  slug length
+ * byte[] slug, UTF-8
+ * byte[] JSON payload
+ * </pre>
+ *
+ * @author Nikolas Falco
+ */
+public class SnapshotStore implements Closeable {
+
+    private static final int MAGIC = 0x42425331; // BBS1
+    private static final int RECORD_HEADER = Integer.BYTES * 2;
+    // beyond this the whole file is mapped again as a single region
+    private static final int MAX_REGIONS = 64;
+
+    private enum Kind {
+        REMOVED, REPOSITORY, BRANCH_RESTRICTIONS, GROUP_PERMISSIONS, WEBHOOKS
+    }
+
+    private static class Location {
+        private final long offset;
+        private final int length;
+
+        Location(long offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    private final Logger logger = Logger.getLogger(SnapshotStore.class.getName());
+
+    private final Path file;
+    private final ObjectMapper objectMapper;
+    private final Map<String, Map<Kind, Location>> index = new HashMap<>();
+    private FileChannel channel;
+    // mapped regions keyed by their offset in the file
+    private final NavigableMap<Long, MappedByteBuffer> regions = new TreeMap<>();
+    private long mappedSize;
+    private long size;
+
+    private SnapshotStore(Path file) {
+        this.file = file;
+        objectMapper = new ObjectMapper();
+        objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        objectMapper.setDefaultPropertyInclusion(Include.NON_NULL);
+    }
+
+    /**
+     * Opens the given snapshot file, created if does not exist.
+     *
+     * @param file the snapshot file
+     * @return the store
+     * @throws IOException if the file can not be opened or it is not a
+     *         snapshot
+     */
+    public static SnapshotStore open(Path file) throws IOException {
+        SnapshotStore store = new SnapshotStore(file);
+        store.load();
+        return store;
+    }
+
+    private void load() throws IOException {
+        index.clear();
+        unmap();
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        size = channel.size();
+        if (size == 0) {
+            ByteBuffer header = ByteBuffer.allocate(Integer.BYTES).putInt(MAGIC);
+            header.flip();
+            channel.write(header, 0);
+            size = Integer.BYTES;
+            return;
+        }
+        ByteBuffer buffer = size >= Integer.BYTES ? region(0, size) : null;
+        if (buffer == null || buffer.getInt(0) != MAGIC) {
+            channel.close();
+            throw new IOException(file + " is not a snapshot file");
+        }
+
+        long position = Integer.BYTES;
+        while (position + RECORD_HEADER <= size) {
+            int length = buffer.getInt((int) position);
+            long start = position + RECORD_HEADER;
+            if (!isRecord(buffer, position)) {
+                if (!isTail(buffer, position)) {
+                    channel.close();
+                    throw new IOException("Corrupted record at offset " + position + " of " + file + ", followed by other records");
+                }
+                break;
+            }
+            int slugLength = buffer.getShort((int) start + 1);
+            byte[] slug = new byte[slugLength];
+            ByteBuffer record = buffer.duplicate();
+            record.position((int) start + 3);
+            record.get(slug);
+            long payload = start + 3 + slugLength;
+            index(new String(slug, StandardCharsets.UTF_8), Kind.values()[buffer.get((int) start)], //
+                    new Location(payload, (int) (start + length - payload)));
+            position = start + length;
+        }
+        if (position != size) {
+            logger.log(Level.WARNING, "Discarded {0} bytes of a truncated record in {1}", new Object[] { size - position, file });
+            unmap();
+            channel.truncate(position);
+            size = position;
+        }
+    }
+
+    private boolean isRecord(ByteBuffer buffer, long position) {
+        int length = buffer.getInt((int) position);
+        int crc = buffer.getInt((int) position + Integer.BYTES);
+        long start = position + RECORD_HEADER;
+        return length >= 3 && start + length <= size && checksum(buffer, start, length) == crc;
+    }
+
+    /*
+     * An interrupted write leaves a partial last record or zeros of a block
+     * allocated but not written. Whatever the corrupted field, nothing after
+     * it can be read as a record, otherwise truncating would lose valid data.
+     */
+    private boolean isTail(ByteBuffer buffer, long position) {
+        for (long next = position + 1; next + RECORD_HEADER <= size; next++) {
+            if (isRecord(buffer, next)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int checksum(ByteBuffer buffer, long start, int length) {
+        ByteBuffer record = buffer.duplicate();
+        record.position((int) start);
+        record.limit((int) start + length);
+        CRC32 crc = new CRC32();
+        crc.update(record);
+        return (int) crc.getValue();
+    }
+
+    private void index(String slug, Kind kind, Location location) {
+        if (kind == Kind.REMOVED) {
+            index.remove(slug);
+        } else {
+            index.computeIfAbsent(slug, key -> new EnumMap<>(Kind.class)).put(kind, location);
+        }
+    }
+
+    /*
+     * Returns the bytes between the given offsets, positioned at start. Only
+     * the records appended after the last mapping are mapped, a record is
+     * always contained in a single region.
+     */
+    private ByteBuffer region(long start, long end) throws IOException {
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Snapshot file " + file + " exceeds 2GB, compact it");
+        }
+        if (end > mappedSize) {
+            if (regions.size() >= MAX_REGIONS) {
+                unmap();
+            }
+            regions.put(mappedSize, channel.map(MapMode.READ_ONLY, mappedSize, size - mappedSize));
+            mappedSize = size;
+        }
+        Map.Entry<Long, MappedByteBuffer> region = regions.floorEntry(start);
+        ByteBuffer buffer = region.getValue().duplicate();
+        buffer.limit((int) (end - region.getKey()));
+        buffer.position((int) (start - region.getKey()));
+        return buffer.slice();
+    }
+
+    private void unmap() {
+        regions.clear();
+        mappedSize = 0;
+    }
+
+    /**
+     * Returns the slug of the repositories in the snapshot.
+     *
+     * @return the sorted repository slugs
+     */
+    public synchronized Set<String> getRepositories() {
+        Set<String> slugs = new TreeSet<>();
+        index.forEach((slug, locations) -> {
+            if (locations.containsKey(Kind.REPOSITORY)) {
+                slugs.add(slug);
+            }
+        });
+        return Collections.unmodifiableSet(slugs);
+    }
+
+    public Repository getRepository(String slug) throws IOException {
+        return read(slug, Kind.REPOSITORY, objectMapper.constructType(Repository.class));
+    }
+
+    public List<BranchRestriction> getBranchRestrictions(String slug) throws IOException {
+        return read(slug, Kind.BRANCH_RESTRICTIONS, listOf(BranchRestriction.class));
+    }
+
+    public List<GroupPermission> getGroupPermissions(String slug) throws IOException {
+        return read(slug, Kind.GROUP_PERMISSIONS, listOf(GroupPermission.class));
+    }
+
+    public List<Webhook> getWebhooks(String slug) throws IOException {
+        return read(slug, Kind.WEBHOOKS, listOf(Webhook.class));
+    }
+
+    /**
+     * Stores the given repository, indexed by its slug.
+     *
+     * @param repository the repository to store
+     * @throws IOException if the record can not be written
+     */
+    public void putRepository(Repository repository) throws IOException {
+        append(repository.getSlug(), Kind.REPOSITORY, repository);
+    }
+
+    public void putBranchRestrictions(String slug, List<BranchRestriction> restrictions) throws IOException {
+        append(slug, Kind.BRANCH_RESTRICTIONS, restrictions);
+    }
+
+    public void putGroupPermissions(String slug, List<GroupPermission> permissions) throws IOException {
+        append(slug, Kind.GROUP_PERMISSIONS, permissions);
+    }
+
+    public void putWebhooks(String slug, List<Webhook> webhooks) throws IOException {
+        append(slug, Kind.WEBHOOKS, webhooks);
+    }
+
+    /**
+     * Removes all the records of the given repository.
+     *
+     * @param slug the repository slug
+     * @throws IOException if the record can not be written
+     */
+    public void remove(String slug) throws IOException {
+        append(slug, Kind.REMOVED, null);
+    }
+
+    private JavaType listOf(Class<?> elementType) {
+        return objectMapper.getTypeFactory().constructCollectionType(List.class, elementType);
+    }
+
+    private synchronized <T> T read(String slug, Kind kind, JavaType type) throws IOException {
+        Map<Kind, Location> locations = index.get(slug);
+        Location location = locations != null ? locations.get(kind) : null;
+        if (location == null) {
+            return null;
+        }
+        ByteBuffer payload = region(location.offset, location.offset + location.length);
+        try (InputStream is = new ByteBufferBackedInputStream(payload)) {
+            return objectMapper.readValue(is, type);
+        }
+    }
+
+    private synchronized void append(String slug, Kind kind, Object value) throws IOException {
+        byte[] slugBytes = slug.getBytes(StandardCharsets.UTF_8);
+        if (slugBytes.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Slug too long " + slug);
+        }
+        byte[] payload = value != null ? objectMapper.writeValueAsBytes(value) : new byte[0];
+
+        int length = 3 + slugBytes.length + payload.length;
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER + length);
+        record.position(RECORD_HEADER);
+        record.put((byte) kind.ordinal()).putShort((short) slugBytes.length).put(slugBytes).put(payload);
+        record.putInt(0, length).putInt(Integer.BYTES, checksum(record, RECORD_HEADER, length));
+        record.position(0);
+
+        long offset = size;
+        while (record.hasRemaining()) {
+            offset += channel.write(record, offset);
+        }
+        index(slug, kind, new Location(size + RECORD_HEADER + 3 + slugBytes.length, payload.length));
+        size = offset;
+    }
+
+    /**
+     * Rewrites the snapshot file with only the current records.
+     *
+     * @throws IOException if the file can not be rewritten, the current one
+     *         is left untouched
+     */
+    public synchronized void compact() throws IOException {
+        Path tmp = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            List<String> slugs = new ArrayList<>(index.keySet());
+            try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                ByteBuffer header = ByteBuffer.allocate(Integer.BYTES).putInt(MAGIC);
+                header.flip();
+                out.write(header);
+                for (String slug : slugs) {
+                    for (Location location : index.get(slug).values()) {
+                        // the whole record starts before the payload
+                        long start = location.offset - RECORD_HEADER - 3 - slug.getBytes(StandardCharsets.UTF_8).length;
+                        ByteBuffer record = region(start, location.offset + location.length);
+                        while (record.hasRemaining()) {
+                            out.write(record);
+                        }
+                    }
+                }
+                out.force(true);
+            }
+            unmap();
+            channel.close();
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+            if (!channel.isOpen()) {
+                load();
+            }
+        }
+    }
+
+    /**
+     * Returns the size of the snapshot file.
+     *
+     * @return the file size in bytes
+     */
+    public synchronized long size() {
+        return size;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        unmap();
+        channel.close();
+    }
+}
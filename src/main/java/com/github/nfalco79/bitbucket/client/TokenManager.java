@@ -0,0 +1,141 @@
+/*
+ * Copyright 2022 Falco Nikolas
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.nfalco79.bitbucket.client;
+
+import java.time.Duration;
+
+import com.github.nfalco79.bitbucket.client.Credentials.OAuth2Consumer;
+import com.github.nfalco79.bitbucket.client.model.AuthToken;
+
+/**
+ * Keeps the OAuth2 access token of a consumer valid.
+ * <p>
+ * The token is renewed ahead of its expiration, a token without expiration
+ * only when rejected by the server. Only one thread at time requests a new
+ * token, concurrent callers wait and then use it.
+ *
+ * @author Nikolas Falco
+ */
+/* package */ class TokenManager {
+
+    /**
+     * Requests a new token to the authorization server.
+     */
+    @FunctionalInterface
+    interface TokenProvider {
+        /**
+         * Returns a new access token.
+         *
+         * @param current the token to renew, {@code null} when there is no
+         *        token yet
+         * @return the new token
+         * @throws ClientException if the server does not grant a token
+         */
+        AuthToken get(AuthToken current) throws ClientException;
+    }
+
+    private final OAuth2Consumer credentials;
+    private final TokenProvider provider;
+    private volatile Duration skew;
+    private volatile AuthToken token;
+    // System.nanoTime() after which the token must be renewed
+    private volatile long renewal;
+    private volatile boolean expires;
+
+    TokenManager(OAuth2Consumer credentials, TokenProvider provider, Duration skew) {
+        this.credentials = credentials;
+        this.provider = provider;
+        this.skew = skew;
+    }
+
+    void setSkew(Duration skew) {
+        this.skew = skew;
+    }
+
+    /**
+     * Returns the token to use for the next request, renewing it when near
+     * to expire.
+     *
+     * @return a valid access token
+     * @throws ClientException if the token could not be renewed
+     */
+    String accessToken() throws ClientException {
+        AuthToken current = token;
+        if (current != null && isFresh()) {
+            return current.getAccessToken();
+        }
+        return renew(current);
+    }
+
+    /**
+     * Returns the current token when it does not need to be renewed, without
+     * waiting a renewal in progress.
+     *
+     * @return a valid access token or {@code null} if it must be renewed
+     */
+    String validToken() {
+        AuthToken current = token;
+        return current != null && isFresh() ? current.getAccessToken() : null;
+    }
+
+    private boolean isFresh() {
+        return !expires || renewal - System.nanoTime() > 0;
+    }
+
+    /**
+     * Renews the given token unless another thread has already done.
+     *
+     * @param used the token rejected by the server or about to expire
+     * @return the new access token
+     * @throws ClientException if the token could not be renewed
+     */
+    synchronized String renew(AuthToken used) throws ClientException {
+        AuthToken current = token;
+        if (current != null && current != used && isFresh()) {
+            // renewed by another thread meanwhile
+            return current.getAccessToken();
+        }
+        long now = System.nanoTime();
+        AuthToken newToken = provider.get(current);
+        if (newToken == null) {
+            throw new ClientException("No OAuth2 access token granted", null);
+        }
+        Duration lifetime = Duration.ofSeconds(newToken.getExpiry());
+        // without expiry the token lasts until the server rejects it
+        expires = !lifetime.isNegative() && !lifetime.isZero();
+        if (expires) {
+            // short lived tokens would be renewed on each request
+            Duration ahead = skew.compareTo(lifetime.dividedBy(2)) > 0 ? lifetime.dividedBy(2) : skew;
+            renewal = now + lifetime.minus(ahead).toNanos();
+        }
+        token = newToken;
+        credentials.setToken(newToken.getAccessToken());
+        return newToken.getAccessToken();
+    }
+
+    /**
+     * Renews the token rejected by the server.
+     *
+     * @param accessToken the access token sent with the rejected request
+     * @throws ClientException if the token could not be renewed
+     */
+    void rejected(String accessToken) throws ClientException {
+        AuthToken current = token;
+        if (current != null && accessToken.equals(current.getAccessToken())) {
+            renew(current);
+        }
+    }
+}
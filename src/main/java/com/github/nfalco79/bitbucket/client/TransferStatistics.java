@@ -0,0 +1,235 @@
+/*
+ * Copyright 2022 Falco Nikolas
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.nfalco79.bitbucket.client;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.io.entity.HttpEntityWrapper;
+
+/**
+ * Decodes compressed response bodies while they are read and accounts the
+ * bytes received for each endpoint.
+ *
+ * @author Nikolas Falco
+ */
+/* package */ class TransferStatistics {
+
+    /* package */ static final String ACCEPT_ENCODING = "gzip, deflate";
+    /* package */ static final String OTHER = "other";
+    private static final Pattern ORIGIN = Pattern.compile("^https?://[^/]+");
+
+    private static class Counters {
+        private final LongAdder responses = new LongAdder();
+        private final LongAdder wireBytes = new LongAdder();
+        private final LongAdder contentBytes = new LongAdder();
+    }
+
+    private static class Endpoint {
+        private final String template;
+        private final Pattern pattern;
+
+        Endpoint(String template) {
+            this.template = ORIGIN.matcher(template).replaceFirst("");
+            StringBuilder regex = new StringBuilder();
+            for (String literal : this.template.split("\\{[^}]+\\}", -1)) {
+                if (regex.length() > 0) {
+                    regex.append("[^/]+");
+                }
+                regex.append(Pattern.quote(literal));
+            }
+            this.pattern = Pattern.compile(regex.toString());
+        }
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+        private final LongAdder[] counts;
+
+        CountingInputStream(InputStream in, LongAdder... counts) {
+            super(in);
+            this.counts = counts;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                for (LongAdder count : counts) {
+                    count.increment();
+                }
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                for (LongAdder count : counts) {
+                    count.add(n);
+                }
+            }
+            return n;
+        }
+    }
+
+    /*
+     * Entity which content is decoded and counted, the raw stream is read
+     * only once.
+     */
+    private static class DecodingEntity extends HttpEntityWrapper {
+        private final Counters counters;
+        private final LongAdder responseBytes;
+        private InputStream content;
+
+        DecodingEntity(HttpEntity entity, Counters counters, LongAdder responseBytes) {
+            super(entity);
+            this.counters = counters;
+            this.responseBytes = responseBytes;
+        }
+
+        @Override
+        public synchronized InputStream getContent() throws IOException {
+            if (content == null) {
+                content = decode(super.getContent(), super.getContentEncoding(), counters, responseBytes);
+            }
+            return content;
+        }
+
+        @Override
+        public long getContentLength() {
+            return isSupported(super.getContentEncoding()) ? -1 : super.getContentLength();
+        }
+
+        @Override
+        public String getContentEncoding() {
+            return isSupported(super.getContentEncoding()) ? null : super.getContentEncoding();
+        }
+
+        @Override
+        public void writeTo(OutputStream outStream) throws IOException {
+            try (InputStream is = getContent()) {
+                is.transferTo(outStream);
+            }
+        }
+    }
+
+    private final List<Endpoint> endpoints = new ArrayList<>();
+    private final Map<String, Counters> counters = new ConcurrentHashMap<>();
+
+    TransferStatistics(Collection<String> templates) {
+        templates.forEach(template -> endpoints.add(new Endpoint(template)));
+    }
+
+    /*
+     * Resolves the template of the given path or absolute URI, an identifier
+     * after a known collection is grouped too. Paths of unknown endpoints
+     * are grouped together, they would be unbounded.
+     */
+    String endpoint(String path, String... baseURLs) {
+        path = ORIGIN.matcher(path).replaceFirst("");
+        for (String baseURL : baseURLs) {
+            // the context path of a proxy or a stub server
+            String basePath = ORIGIN.matcher(baseURL).replaceFirst("");
+            if (!basePath.isEmpty() && path.startsWith(basePath + "/")) {
+                path = path.substring(basePath.length());
+                break;
+            }
+        }
+        int query = path.indexOf('?');
+        if (query != -1) {
+            path = path.substring(0, query);
+        }
+        for (Endpoint endpoint : endpoints) {
+            if (endpoint.pattern.matcher(path).matches()) {
+                return endpoint.template;
+            }
+        }
+        for (Endpoint endpoint : endpoints) {
+            int slash = path.lastIndexOf('/');
+            if (slash > 0 && endpoint.pattern.matcher(path.substring(0, slash)).matches()) {
+                return endpoint.template + "/{id}";
+            }
+        }
+        return OTHER;
+    }
+
+    /**
+     * Wraps the response entity to decode and count its content.
+     *
+     * @param entity the received entity
+     * @param endpoint the endpoint template of the request
+     * @param responseBytes counts the bytes received of this response only
+     * @return an entity which content is decoded
+     */
+    HttpEntity wrap(HttpEntity entity, String endpoint, LongAdder responseBytes) {
+        Counters endpointCounters = counters.computeIfAbsent(endpoint, key -> new Counters());
+        endpointCounters.responses.increment();
+        return new DecodingEntity(entity, endpointCounters, responseBytes);
+    }
+
+    private static boolean isSupported(String encoding) {
+        if (encoding == null) {
+            return false;
+        }
+        switch (encoding.trim().toLowerCase()) {
+        case "gzip":
+        case "x-gzip":
+        case "deflate":
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    private static InputStream decode(InputStream wire, String encoding, Counters endpointCounters, LongAdder responseBytes) throws IOException {
+        InputStream is = new CountingInputStream(wire, endpointCounters.wireBytes, responseBytes);
+        if (isSupported(encoding)) {
+            if ("deflate".equalsIgnoreCase(encoding.trim())) {
+                is = new InflaterInputStream(is);
+            } else {
+                is = new GZIPInputStream(is);
+            }
+        }
+        return new CountingInputStream(is, endpointCounters.contentBytes);
+    }
+
+    Map<String, TransferStats> stats() {
+        Map<String, TransferStats> stats = new TreeMap<>();
+        counters.forEach((endpoint, counter) -> stats.put(endpoint, new TransferStats(endpoint, //
+                counter.responses.sum(), //
+                counter.wireBytes.sum(), //
+                counter.contentBytes.sum())));
+        return stats;
+    }
+
+    void reset() {
+        counters.clear();
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2022 Falco Nikolas
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.nfalco79.bitbucket.client;
+
+/**
+ * Snapshot of the bytes received from an endpoint.
+ *
+ * @author Nikolas Falco
+ */
+public class TransferStats {
+
+    private final String endpoint;
+    private final long responses;
+    private final long wireBytes;
+    private final long contentBytes;
+
+    /* package */ TransferStats(String endpoint, long responses, long wireBytes, long contentBytes) {
+        this.endpoint = endpoint;
+        this.responses = responses;
+        this.wireBytes = wireBytes;
+        this.contentBytes = contentBytes;
+    }
+
+    /**
+     * Returns the URI template of the endpoint.
+     *
+     * @return the endpoint path template
+     */
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public long getResponses() {
+        return responses;
+    }
+
+    /**
+     * Returns the bytes of the response bodies as received, compressed
+     * when the server has encoded them.
+     *
+     * @return the transferred bytes
+     */
+    public long getWireBytes() {
+        return wireBytes;
+    }
+
+    /**
+     * Returns the bytes of the response bodies once decoded.
+     *
+     * @return the uncompressed bytes
+     */
+    public long getContentBytes() {
+        return contentBytes;
+    }
+
+    @Override
+    public String toString() {
+        return endpoint + " responses: " + responses + ", wire: " + wireBytes + ", content: " + contentBytes;
+    }
+}
@@ -0,0 +1,284 @@
+/*
+ * Copyright 2022 Falco Nikolas
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.nfalco79.bitbucket.client;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+
+/**
+ * Endpoints, connection pool and timeouts used by the HTTP transport of the
+ * clients.
+ * <p>
+ * All requests are sent to the same host so the number of connections per
+ * route is the real limit of concurrent requests. A {@code null} value means
+ * the default of the underlying HTTP client.
+ *
+ * @author Nikolas Falco
+ */
+public class TransportConfig {
+
+    /**
+     * Base URL of the Bitbucket Cloud REST APIs.
+     */
+    public static final String DEFAULT_API_URL = "https://api.bitbucket.org";
+    /**
+     * Base URL of the Bitbucket Cloud site, where OAuth2 tokens are granted.
+     */
+    public static final String DEFAULT_SITE_URL = "https://bitbucket.org";
+
+    private String apiURL = DEFAULT_API_URL;
+    private String siteURL = DEFAULT_SITE_URL;
+    private int maxTotal = 50;
+    private int maxPerRoute = 20;
+    private TimeValue connectionTTL;
+    private TimeValue idleEviction = TimeValue.ofSeconds(30);
+    private TimeValue validateAfterInactivity = TimeValue.ofSeconds(2);
+    private Timeout connectTimeout = Timeout.ofSeconds(30);
+    private Timeout socketTimeout;
+    private Timeout responseTimeout;
+    private Timeout connectionRequestTimeout;
+    private boolean compression = true;
+
+    public int getMaxTotal() {
+        return maxTotal;
+    }
+
+    /**
+     * Sets the maximum number of open connections.
+     *
+     * @param maxTotal the maximum number of connections in the pool
+     * @return this configuration
+     */
+    public TransportConfig setMaxTotal(int maxTotal) {
+        if (maxTotal < 1) {
+            throw new IllegalArgumentException("max total connections must be greater than zero");
+        }
+        this.maxTotal = maxTotal;
+        return this;
+    }
+
+    public int getMaxPerRoute() {
+        return maxPerRoute;
+    }
+
+    /**
+     * Sets the maximum number of open connections toward the same host.
+     *
+     * @param maxPerRoute the maximum number of connections per route
+     * @return this configuration
+     */
+    public TransportConfig setMaxPerRoute(int maxPerRoute) {
+        if (maxPerRoute < 1) {
+            throw new IllegalArgumentException("max connections per route must be greater than zero");
+        }
+        this.maxPerRoute = maxPerRoute;
+        return this;
+    }
+
+    public TimeValue getConnectionTTL() {
+        return connectionTTL;
+    }
+
+    /**
+     * Sets the total time to live of a connection, after that the connection
+     * is closed even if still valid.
+     *
+     * @param connectionTTL the connection time to live
+     * @return this configuration
+     */
+    public TransportConfig setConnectionTTL(TimeValue connectionTTL) {
+        this.connectionTTL = connectionTTL;
+        return this;
+    }
+
+    public TimeValue getIdleEviction() {
+        return idleEviction;
+    }
+
+    /**
+     * Sets after how much time an idle connection is evicted from the pool by
+     * a background thread.
+     *
+     * @param idleEviction the max idle time, {@code null} to disable eviction
+     * @return this configuration
+     */
+    public TransportConfig setIdleEviction(TimeValue idleEviction) {
+        this.idleEviction = idleEviction;
+        return this;
+    }
+
+    public TimeValue getValidateAfterInactivity() {
+        return validateAfterInactivity;
+    }
+
+    /**
+     * Sets after how much time of inactivity a pooled connection is validated
+     * before to be leased.
+     *
+     * @param validateAfterInactivity the inactivity period
+     * @return this configuration
+     */
+    public TransportConfig setValidateAfterInactivity(TimeValue validateAfterInactivity) {
+        this.validateAfterInactivity = validateAfterInactivity;
+        return this;
+    }
+
+    public Timeout getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public TransportConfig setConnectTimeout(Timeout connectTimeout) {
+        this.connectTimeout = connectTimeout;
+        return this;
+    }
+
+    public Timeout getSocketTimeout() {
+        return socketTimeout;
+    }
+
+    public TransportConfig setSocketTimeout(Timeout socketTimeout) {
+        this.socketTimeout = socketTimeout;
+        return this;
+    }
+
+    public Timeout getResponseTimeout() {
+        return responseTimeout;
+    }
+
+    public TransportConfig setResponseTimeout(Timeout responseTimeout) {
+        this.responseTimeout = responseTimeout;
+        return this;
+    }
+
+    public Timeout getConnectionRequestTimeout() {
+        return connectionRequestTimeout;
+    }
+
+    /**
+     * Sets how much time a request waits for a free connection of the pool.
+     *
+     * @param connectionRequestTimeout the lease timeout
+     * @return this configuration
+     */
+    public TransportConfig setConnectionRequestTimeout(Timeout connectionRequestTimeout) {
+        this.connectionRequestTimeout = connectionRequestTimeout;
+        return this;
+    }
+
+    public boolean isCompression() {
+        return compression;
+    }
+
+    /**
+     * Sets if responses are requested compressed with gzip or deflate.
+     *
+     * @param compression {@code false} to transfer responses as is
+     * @return this configuration
+     */
+    public TransportConfig setCompression(boolean compression) {
+        this.compression = compression;
+        return this;
+    }
+
+    public String getApiURL() {
+        return apiURL;
+    }
+
+    /**
+     * Sets the base URL of the REST APIs, to use a proxy or a stub server.
+     *
+     * @param apiURL the URL that replaces {@value #DEFAULT_API_URL}
+     * @return this configuration
+     */
+    public TransportConfig setApiURL(String apiURL) {
+        this.apiURL = baseURL(apiURL);
+        return this;
+    }
+
+    public String getSiteURL() {
+        return siteURL;
+    }
+
+    /**
+     * Sets the base URL of the site that grants OAuth2 tokens.
+     *
+     * @param siteURL the URL that replaces {@value #DEFAULT_SITE_URL}
+     * @return this configuration
+     */
+    public TransportConfig setSiteURL(String siteURL) {
+        this.siteURL = baseURL(siteURL);
+        return this;
+    }
+
+    private static String baseURL(String url) {
+        URI uri;
+        try {
+            uri = new URI(url);
+        } catch (URISyntaxException | NullPointerException e) {
+            throw new IllegalArgumentException("Invalid base URL " + url, e);
+        }
+        if (!"http".equals(uri.getScheme()) && !"https".equals(uri.getScheme()) || uri.getHost() == null || uri.getQuery() != null) {
+            throw new IllegalArgumentException("Invalid base URL " + url);
+        }
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+
+    /*
+     * Replaces the default base URL of the given absolute URI with the
+     * configured one.
+     */
+    /* package */ String rebase(String uri) {
+        if (!DEFAULT_API_URL.equals(apiURL) && uri.startsWith(DEFAULT_API_URL + "/")) {
+            return apiURL + uri.substring(DEFAULT_API_URL.length());
+        } else if (!DEFAULT_SITE_URL.equals(siteURL) && uri.startsWith(DEFAULT_SITE_URL + "/")) {
+            return siteURL + uri.substring(DEFAULT_SITE_URL.length());
+        }
+        return uri;
+    }
+
+    /* package */ ConnectionConfig connectionConfig() {
+        ConnectionConfig.Builder builder = ConnectionConfig.custom();
+        if (connectTimeout != null) {
+            builder.setConnectTimeout(connectTimeout);
+        }
+        if (socketTimeout != null) {
+            builder.setSocketTimeout(socketTimeout);
+        }
+        if (connectionTTL != null) {
+            builder.setTimeToLive(connectionTTL);
+        }
+        if (validateAfterInactivity != null) {
+            builder.setValidateAfterInactivity(validateAfterInactivity);
+        }
+        return builder.build();
+    }
+
+    /* package */ RequestConfig requestConfig() {
+        RequestConfig.Builder builder = RequestConfig.custom();
+        if (responseTimeout != null) {
+            builder.setResponseTimeout(responseTimeout);
+        }
+        if (connectionRequestTimeout != null) {
+            builder.setConnectionRequestTimeout(connectionRequestTimeout);
+        }
+        return builder.build();
+    }
+}
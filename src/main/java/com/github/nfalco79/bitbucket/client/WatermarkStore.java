@@ -0,0 +1,120 @@
+/*
+ * Copyright 2022 Falco Nikolas
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.nfalco79.bitbucket.client;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the last time the pull requests of a repository have been
+ * synchronised.
+ * <p>
+ * Implementations must be thread safe, repositories could be synchronised
+ * concurrently. A store that does not keep the pull requests seen at the
+ * watermark returns them again at the next synchronisation.
+ *
+ * @author Nikolas Falco
+ * @see BitbucketCloudClient#syncPullRequests(String, String, WatermarkStore)
+ */
+public interface WatermarkStore {
+
+    /**
+     * Returns the watermark of the given repository.
+     *
+     * @param workspace bitbucket workspace
+     * @param repository the repository name
+     * @return the update time of the newest pull request already seen,
+     *         {@code null} if the repository has never been synchronised
+     * @throws IOException if the store can not be read
+     */
+    Instant get(String workspace, String repository) throws IOException;
+
+    /**
+     * Stores the watermark of the given repository.
+     *
+     * @param workspace bitbucket workspace
+     * @param repository the repository name
+     * @param watermark the update time of the newest pull request seen
+     * @throws IOException if the store can not be written
+     */
+    void put(String workspace, String repository, Instant watermark) throws IOException;
+
+    /**
+     * Returns the identifiers of the pull requests updated exactly at the
+     * watermark already seen, the server could update others in the same
+     * instant afterwards.
+     *
+     * @param workspace bitbucket workspace
+     * @param repository the repository name
+     * @return the pull requests seen at the watermark
+     * @throws IOException if the store can not be read
+     */
+    default Set<Integer> getSeen(String workspace, String repository) throws IOException {
+        return Collections.emptySet();
+    }
+
+    /**
+     * Stores the watermark of the given repository and the pull requests
+     * updated exactly at it.
+     *
+     * @param workspace bitbucket workspace
+     * @param repository the repository name
+     * @param watermark the update time of the newest pull request seen
+     * @param seen the identifiers of the pull requests updated at the
+     *        watermark
+     * @throws IOException if the store can not be written
+     */
+    default void put(String workspace, String repository, Instant watermark, Set<Integer> seen) throws IOException {
+        put(workspace, repository, watermark);
+    }
+
+    /**
+     * Returns a store that lives as long as the returned instance.
+     *
+     * @return a new in memory store
+     */
+    static WatermarkStore inMemory() {
+        Map<String, Instant> watermarks = new ConcurrentHashMap<>();
+        Map<String, Set<Integer>> seenAt = new ConcurrentHashMap<>();
+        return new WatermarkStore() {
+            @Override
+            public Instant get(String workspace, String repository) {
+                return watermarks.get(workspace + '/' + repository);
+            }
+
+            @Override
+            public Set<Integer> getSeen(String workspace, String repository) {
+                return seenAt.getOrDefault(workspace + '/' + repository, Collections.emptySet());
+            }
+
+            @Override
+            public void put(String workspace, String repository, Instant watermark) {
+                put(workspace, repository, watermark, Collections.emptySet());
+            }
+
+            @Override
+            public void put(String workspace, String repository, Instant watermark, Set<Integer> seen) {
+                watermarks.put(workspace + '/' + repository, watermark);
+                seenAt.put(workspace + '/' + repository, Collections.unmodifiableSet(new HashSet<>(seen)));
+            }
+        };
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2022 Falco Nikolas
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.nfalco79.bitbucket.client.internal.rest;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+
+/**
+ * Decodes a paginated response token by token.
+ * <p>
+ * Each element of the {@code values} array is bound as soon as it is complete
+ * and handed to the consumer, so the memory used does not depend on the page
+ * length. The pagination fields are collected wherever they appear in the
+ * object.
+ *
+ * @author Nikolas Falco
+ * @param <T> the type of elements in the page
+ */
+public class PageReader<T> {
+
+    private final ObjectReader elementReader;
+    private final Consumer<? super T> consumer;
+
+    /**
+     * Create a reader for elements bound by the given object reader.
+     *
+     * @param elementReader reader of a single page element
+     * @param consumer receiver of each element in page order
+     */
+    public PageReader(ObjectReader elementReader, Consumer<? super T> consumer) {
+        this.elementReader = elementReader;
+        this.consumer = consumer;
+    }
+
+    /**
+     * Reads a page from the given parser.
+     *
+     * @param parser positioned before the start of the page object
+     * @return the pagination details of the page, values are always empty
+     * @throws IOException in case of malformed content or I/O failure
+     */
+    public PaginatedResponse<T> read(JsonParser parser) throws IOException {
+        PaginatedResponse<T> page = new PaginatedResponse<T>() {};
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw MismatchedInputException.from(parser, PaginatedResponse.class, "Expected a paginated JSON object");
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken token = parser.nextToken();
+            switch (field) {
+            case "values":
+                readValues(parser, token);
+                break;
+            case "next":
+                page.setNext(token == JsonToken.VALUE_STRING ? parser.getText() : null);
+                break;
+            case "page":
+                page.setPage(asInteger(parser, token));
+                break;
+            case "pagelen":
+                page.setPagelen(asInteger(parser, token));
+                break;
+            case "size":
+                page.setSize(asInteger(parser, token));
+                break;
+            default:
+                parser.skipChildren();
+                break;
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Returns a reader that hands each element to this consumer and then to
+     * the given one.
+     *
+     * @param after the additional receiver of elements
+     * @return a new page reader
+     */
+    public PageReader<T> andThen(Consumer<? super T> after) {
+        return new PageReader<>(elementReader, value -> {
+            consumer.accept(value);
+            after.accept(value);
+        });
+    }
+
+    /**
+     * Hands the elements of a page already read to the consumer as if they
+     * were read from the response.
+     *
+     * @param page a page with values
+     * @return the pagination details of the page, values are always empty
+     */
+    public PaginatedResponse<T> replay(PaginatedResponse<? extends T> page) {
+        PaginatedResponse<T> result = new PaginatedResponse<T>() {};
+        result.setNext(page.getNext());
+        result.setPage(page.getPage());
+        result.setPagelen(page.getPagelen());
+        result.setSize(page.getSize());
+        page.getValues().forEach(consumer);
+        return result;
+    }
+
+    private void readValues(JsonParser parser, JsonToken token) throws IOException {
+        if (token != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            T value = elementReader.readValue(parser);
+            if (value != null) {
+                consumer.accept(value);
+            }
+        }
+    }
+
+    private Integer asInteger(JsonParser parser, JsonToken token) throws IOException {
+        return token == JsonToken.VALUE_NUMBER_INT ? parser.getIntValue() : null;
+    }
+}
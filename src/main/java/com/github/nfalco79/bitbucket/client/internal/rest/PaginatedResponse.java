@@ -24,6 +24,9 @@ import com.fasterxml.jackson.annotation.JsonInclude.Include;
 public abstract class PaginatedResponse<T> {
 
     private String next;
+    private Integer page;
+    private Integer pagelen;
+    private Integer size;
     @JsonInclude(Include.NON_EMPTY)
     private List<T> values = new ArrayList<>();
 
@@ -38,6 +41,30 @@ public abstract class PaginatedResponse<T> {
         this.next = next;
     }
 
+    public Integer getPage() {
+        return page;
+    }
+
+    public void setPage(Integer page) {
+        this.page = page;
+    }
+
+    public Integer getPagelen() {
+        return pagelen;
+    }
+
+    public void setPagelen(Integer pagelen) {
+        this.pagelen = pagelen;
+    }
+
+    public Integer getSize() {
+        return size;
+    }
+
+    public void setSize(Integer size) {
+        this.size = size;
+    }
+
     public List<T> getValues() {
         return values;
     }
@@ -30,6 +30,8 @@ public class PullRequest implements Serializable {
     private String title;
     private String description;
     private Date date;
+    private Date createdOn;
+    private Date updatedOn;
     private boolean closeSourceBranch;
     private Links links;
     private String state;
@@ -171,4 +173,22 @@ public class PullRequest implements Serializable {
         this.date = date;
     }
 
+    @JsonProperty("created_on")
+    public Date getCreatedOn() {
+        return createdOn;
+    }
+
+    public void setCreatedOn(Date createdOn) {
+        this.createdOn = createdOn;
+    }
+
+    @JsonProperty("updated_on")
+    public Date getUpdatedOn() {
+        return updatedOn;
+    }
+
+    public void setUpdatedOn(Date updatedOn) {
+        this.updatedOn = updatedOn;
+    }
+
 }
@@ -0,0 +1,468 @@
+/*
+ * Copyright 2022 Falco Nikolas
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.nfalco79.bitbucket.client;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.HttpStatus;
+import org.apache.hc.core5.http.NameValuePair;
+import org.apache.hc.core5.http.impl.bootstrap.HttpServer;
+import org.apache.hc.core5.http.impl.bootstrap.ServerBootstrap;
+import org.apache.hc.core5.http.io.entity.ByteArrayEntity;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.net.URIBuilder;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * In process Bitbucket Cloud server that answers with the fixtures under
+ * {@code src/test/resources/api.bitbucket.org}, to exercise the whole HTTP
+ * stack of the clients offline.
+ * <p>
+ * Collections could be replaced by a generated dataset of any size, paged as
+ * the real server does. Latency and error responses could be injected.
+ * Responses are compressed when the client accepts gzip, GET responses carry
+ * the configured ETag and OAuth2 bearer tokens could be enforced.
+ *
+ * <pre>
+ * try (BitbucketStubServer server = new BitbucketStubServer().start()) {
+ *     server.dataset("/2.0/repositories/nfalco79", 10_000);
+ *     BitbucketCloudClient client = new BitbucketCloudClient(credentials, server.configure(new TransportConfig()));
+ * }
+ * </pre>
+ *
+ * @author Nikolas Falco
+ */
+public class BitbucketStubServer implements Closeable {
+
+    private static final String FIXTURES = "/api.bitbucket.org";
+    private static final String TOKEN_PATH = "/site/oauth2/access_token";
+    private static final int MAX_PAGE_LENGTH = 100;
+
+    private static class Dataset {
+        private final List<JsonNode> templates;
+        private final int size;
+
+        Dataset(List<JsonNode> templates, int size) {
+            this.templates = templates;
+            this.size = size;
+        }
+    }
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Map<String, Dataset> datasets = new ConcurrentHashMap<>();
+    private final Collection<String> requests = new ConcurrentLinkedQueue<>();
+    private final Collection<Integer> responses = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingFailures = new AtomicInteger();
+    private final AtomicInteger tokens = new AtomicInteger();
+    private volatile int failureStatus = HttpStatus.SC_SERVICE_UNAVAILABLE;
+    private volatile double failureRate;
+    private volatile Duration retryAfter = Duration.ZERO;
+    private volatile Duration latency = Duration.ZERO;
+    private volatile Duration tokenExpiration = Duration.ofHours(2);
+    private volatile String requiredToken;
+    private volatile String etag;
+    private volatile CountDownLatch held = new CountDownLatch(0);
+    private HttpServer server;
+
+    /**
+     * Starts listening on a random local port.
+     *
+     * @return this server
+     * @throws IOException if the server could not be started
+     */
+    public BitbucketStubServer start() throws IOException {
+        server = ServerBootstrap.bootstrap() //
+                .setCanonicalHostName("localhost") //
+                .register("*", (request, response, context) -> handle(request, response)) //
+                .create();
+        server.start();
+        return this;
+    }
+
+    /**
+     * Returns the base URL of this server.
+     *
+     * @return the server URL
+     */
+    public String getURL() {
+        return "http://localhost:" + server.getLocalPort();
+    }
+
+    /**
+     * Points the REST APIs and the OAuth2 endpoint to this server.
+     *
+     * @param transport the configuration to change
+     * @return the given configuration
+     */
+    public TransportConfig configure(TransportConfig transport) {
+        return transport.setApiURL(getURL()).setSiteURL(getURL());
+    }
+
+    /**
+     * Delays each response by the given time.
+     *
+     * @param latency the response delay
+     * @return this server
+     */
+    public BitbucketStubServer latency(Duration latency) {
+        this.latency = latency;
+        return this;
+    }
+
+    /**
+     * Replaces the collection at the given path with generated elements,
+     * copies of the fixture elements with unique identifiers.
+     *
+     * @param path the collection path, for example
+     *        {@code /2.0/repositories/nfalco79}
+     * @param size the number of elements in the collection
+     * @return this server
+     * @throws IOException if there is no fixture for the path
+     */
+    public BitbucketStubServer dataset(String path, int size) throws IOException {
+        List<JsonNode> templates = new ArrayList<>();
+        JsonNode fixture = fixture(path);
+        if (fixture == null) {
+            throw new IOException("Missing fixture " + path);
+        }
+        fixture.path("values").forEach(templates::add);
+        if (templates.isEmpty()) {
+            throw new IOException("Fixture " + path + " is not a collection");
+        }
+        datasets.put(path, new Dataset(templates, size));
+        return this;
+    }
+
+    /**
+     * Answers the next requests with the given status code.
+     *
+     * @param status the error status, for example 429 or 503
+     * @param times how many requests fail
+     * @return this server
+     */
+    public BitbucketStubServer failNext(int status, int times) {
+        this.failureStatus = status;
+        this.pendingFailures.set(times);
+        return this;
+    }
+
+    /**
+     * Answers randomly the given fraction of requests with the given status
+     * code.
+     *
+     * @param status the error status, for example 429 or 503
+     * @param rate the probability of failure between 0 and 1
+     * @return this server
+     */
+    public BitbucketStubServer failRate(int status, double rate) {
+        this.failureStatus = status;
+        this.failureRate = rate;
+        return this;
+    }
+
+    /**
+     * Sets the {@code Retry-After} of 429 and 503 responses.
+     *
+     * @param retryAfter the time to wait, rounded to seconds
+     * @return this server
+     */
+    public BitbucketStubServer retryAfter(Duration retryAfter) {
+        this.retryAfter = retryAfter;
+        return this;
+    }
+
+    /**
+     * Sets the lifetime of the OAuth2 access tokens issued, {@code null} to
+     * omit it.
+     *
+     * @param tokenExpiration the token lifetime, rounded to seconds
+     * @return this server
+     */
+    public BitbucketStubServer tokenExpiration(Duration tokenExpiration) {
+        this.tokenExpiration = tokenExpiration;
+        return this;
+    }
+
+    /**
+     * Rejects with 401 the API requests not authenticated with the given
+     * access token. Tokens are issued as {@code stub-token-<n>}, counting
+     * from one.
+     *
+     * @param token the only valid access token, {@code null} to accept any
+     *        request
+     * @return this server
+     */
+    public BitbucketStubServer requireToken(String token) {
+        this.requiredToken = token;
+        return this;
+    }
+
+    /**
+     * Sets the entity tag of GET responses, a request with a matching
+     * {@code If-None-Match} is answered with 304.
+     *
+     * @param etag the entity tag, {@code null} to omit it
+     * @return this server
+     */
+    public BitbucketStubServer etag(String etag) {
+        this.etag = etag;
+        return this;
+    }
+
+    /**
+     * Holds the next requests until {@link #release()}.
+     *
+     * @return this server
+     */
+    public BitbucketStubServer hold() {
+        held = new CountDownLatch(1);
+        return this;
+    }
+
+    /**
+     * Lets the held requests complete.
+     *
+     * @return this server
+     */
+    public BitbucketStubServer release() {
+        held.countDown();
+        return this;
+    }
+
+    /**
+     * Returns how many access tokens have been issued.
+     *
+     * @return the issued tokens
+     */
+    public int getTokens() {
+        return tokens.get();
+    }
+
+    /**
+     * Returns the status code of each response sent, in order of completion.
+     *
+     * @return the response status codes
+     */
+    public List<Integer> getResponses() {
+        return new ArrayList<>(responses);
+    }
+
+    /**
+     * Returns method and URI of each request received, in order of arrival.
+     *
+     * @return the received requests
+     */
+    public List<String> getRequests() {
+        return new ArrayList<>(requests);
+    }
+
+    public void resetRequests() {
+        requests.clear();
+        responses.clear();
+    }
+
+    @Override
+    public void close() {
+        release();
+        if (server != null) {
+            server.close(CloseMode.IMMEDIATE);
+        }
+    }
+
+    private void handle(ClassicHttpRequest request, ClassicHttpResponse response) throws IOException {
+        requests.add(request.getMethod() + " " + request.getRequestUri());
+        try {
+            held.await(10, TimeUnit.SECONDS);
+            if (!latency.isZero()) {
+                Thread.sleep(latency.toMillis());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+        try {
+            respond(request, response);
+        } finally {
+            responses.add(response.getCode());
+        }
+        Header acceptEncoding = request.getFirstHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (response.getEntity() != null && acceptEncoding != null && acceptEncoding.getValue().contains("gzip")) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (GZIPOutputStream os = new GZIPOutputStream(compressed)) {
+                os.write(EntityUtils.toByteArray(response.getEntity()));
+            }
+            response.setEntity(new ByteArrayEntity(compressed.toByteArray(), ContentType.APPLICATION_JSON, "gzip"));
+        }
+    }
+
+    private void respond(ClassicHttpRequest request, ClassicHttpResponse response) throws IOException {
+
+        if (pendingFailures.getAndUpdate(value -> Math.max(0, value - 1)) > 0 //
+                || failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate) {
+            fail(response, failureStatus);
+            return;
+        }
+
+        String path = request.getPath().replaceFirst("\\?.*", "");
+        if (TOKEN_PATH.equals(path)) {
+            ObjectNode token = mapper.createObjectNode();
+            token.put("access_token", "stub-token-" + tokens.incrementAndGet());
+            token.put("refresh_token", "stub-refresh");
+            token.put("token_type", "bearer");
+            if (tokenExpiration != null) {
+                token.put("expires_in", tokenExpiration.getSeconds());
+            }
+            reply(response, HttpStatus.SC_OK, mapper.writeValueAsBytes(token));
+            return;
+        }
+        Header authorization = request.getFirstHeader(HttpHeaders.AUTHORIZATION);
+        if (requiredToken != null && (authorization == null || !authorization.getValue().equals("Bearer " + requiredToken))) {
+            fail(response, HttpStatus.SC_UNAUTHORIZED);
+            return;
+        }
+        switch (request.getMethod()) {
+        case "GET":
+            Dataset dataset = datasets.get(path);
+            if (dataset != null) {
+                reply(response, HttpStatus.SC_OK, page(request, path, dataset));
+                return;
+            }
+            JsonNode fixture = fixture(path);
+            Header ifNoneMatch = request.getFirstHeader(HttpHeaders.IF_NONE_MATCH);
+            if (fixture == null) {
+                fail(response, HttpStatus.SC_NOT_FOUND);
+            } else if (etag != null && ifNoneMatch != null && etag.equals(ifNoneMatch.getValue())) {
+                response.setCode(HttpStatus.SC_NOT_MODIFIED);
+            } else {
+                reply(response, HttpStatus.SC_OK, mapper.writeValueAsBytes(fixture));
+                if (etag != null) {
+                    response.setHeader(HttpHeaders.ETAG, etag);
+                }
+            }
+            break;
+        case "POST":
+        case "PUT":
+            // echo the created or updated object
+            byte[] body = request.getEntity() != null ? EntityUtils.toByteArray(request.getEntity()) : new byte[0];
+            reply(response, "POST".equals(request.getMethod()) ? HttpStatus.SC_CREATED : HttpStatus.SC_OK, body.length > 0 ? body : "{}".getBytes(StandardCharsets.UTF_8));
+            break;
+        case "DELETE":
+            response.setCode(HttpStatus.SC_NO_CONTENT);
+            break;
+        default:
+            fail(response, HttpStatus.SC_METHOD_NOT_ALLOWED);
+            break;
+        }
+    }
+
+    private JsonNode fixture(String path) throws IOException {
+        try (InputStream is = BitbucketStubServer.class.getResourceAsStream(FIXTURES + path + "/response.json")) {
+            return is != null ? mapper.readTree(is) : null;
+        }
+    }
+
+    private byte[] page(ClassicHttpRequest request, String path, Dataset dataset) throws IOException {
+        int page = 1;
+        int pageLength = 10;
+        try {
+            URIBuilder uri = new URIBuilder(request.getUri());
+            NameValuePair pageParam = uri.getFirstQueryParam("page");
+            NameValuePair pageLengthParam = uri.getFirstQueryParam("pagelen");
+            if (pageParam != null) {
+                page = Math.max(1, Integer.parseInt(pageParam.getValue()));
+            }
+            if (pageLengthParam != null) {
+                pageLength = Math.max(1, Math.min(MAX_PAGE_LENGTH, Integer.parseInt(pageLengthParam.getValue())));
+            }
+        } catch (URISyntaxException | NumberFormatException e) {
+            throw new IOException(e);
+        }
+
+        ObjectNode result = mapper.createObjectNode();
+        result.put("pagelen", pageLength);
+        result.put("size", dataset.size);
+        result.put("page", page);
+        ArrayNode values = result.putArray("values");
+        long first = (long) (page - 1) * pageLength;
+        for (long i = first; i < Math.min(dataset.size, first + pageLength); i++) {
+            values.add(element(dataset, (int) i));
+        }
+        if (first + pageLength < dataset.size) {
+            result.put("next", getURL() + path + "?pagelen=" + pageLength + "&page=" + (page + 1));
+        }
+        return mapper.writeValueAsBytes(result);
+    }
+
+    private JsonNode element(Dataset dataset, int index) {
+        ObjectNode element = dataset.templates.get(index % dataset.templates.size()).deepCopy();
+        if (element.hasNonNull("uuid")) {
+            element.put("uuid", "{" + new UUID(0, index) + "}");
+        }
+        if (element.hasNonNull("slug")) {
+            element.put("slug", element.get("slug").asText() + "-" + index);
+        }
+        if (element.hasNonNull("name")) {
+            element.put("name", element.get("name").asText() + " " + index);
+        }
+        if (element.path("id").isInt()) {
+            element.put("id", index + 1);
+        }
+        return element;
+    }
+
+    private void fail(ClassicHttpResponse response, int status) throws IOException {
+        if (status == HttpStatus.SC_TOO_MANY_REQUESTS || status == HttpStatus.SC_SERVICE_UNAVAILABLE) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf((retryAfter.toMillis() + 999) / 1000));
+        }
+        ObjectNode error = mapper.createObjectNode();
+        error.put("type", "error");
+        error.putObject("error").put("message", "Stub error " + status);
+        reply(response, status, mapper.writeValueAsBytes(error));
+    }
+
+    private void reply(ClassicHttpResponse response, int status, byte[] content) {
+        response.setCode(status);
+        response.setEntity(new ByteArrayEntity(content, ContentType.APPLICATION_JSON));
+    }
+}
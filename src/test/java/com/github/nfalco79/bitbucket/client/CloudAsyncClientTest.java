@@ -0,0 +1,83 @@
+/*
+ * Copyright 2022 Falco Nikolas
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.nfalco79.bitbucket.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hc.core5.http.HttpStatus;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.github.nfalco79.bitbucket.client.model.BranchRestriction.Builder;
+import com.github.nfalco79.bitbucket.client.model.PullRequest;
+import com.github.nfalco79.bitbucket.client.model.Repository;
+
+public class CloudAsyncClientTest {
+
+    private static final String WORKSPACE = "nfalco79";
+
+    private BitbucketStubServer server;
+    private BitbucketCloudClient syncClient;
+    private BitbucketCloudAsyncClient client;
+
+    @Before
+    public void setupServer() throws Exception {
+        server = new BitbucketStubServer().start();
+        syncClient = new BitbucketCloudClient(Mockito.mock(Credentials.class), server.configure(new TransportConfig()));
+        client = new BitbucketCloudAsyncClient(syncClient);
+    }
+
+    @After
+    public void shutdownServer() throws Exception {
+        client.close();
+        syncClient.close();
+        server.close();
+    }
+
+    @Test
+    public void get_repositories() throws Exception {
+        List<Repository> repositories = client.getRepositories(WORKSPACE).get(10, TimeUnit.SECONDS);
+        assertThat(repositories).isNotEmpty();
+    }
+
+    @Test
+    public void fan_out_requests() throws Exception {
+        CompletableFuture<List<PullRequest>> pullRequests = client.getPullRequests(WORKSPACE, "test-repos");
+        CompletableFuture<PullRequest> pullRequest = client.getPullRequest(WORKSPACE, "test-repos", 1);
+        CompletableFuture<Void> approval = client.setPullRequestApproval(WORKSPACE, "test-repos", 1, true);
+
+        CompletableFuture.allOf(pullRequests, approval, client.getBranchRestrictions(WORKSPACE, "test-repos") //
+                .thenAccept(restrictions -> assertThat(restrictions).contains(Builder.newDeletePermission("master")))) //
+                .get(10, TimeUnit.SECONDS);
+
+        assertThat(pullRequests.get()).anySatisfy(pr -> assertThat(pr.getTitle()).isEqualTo("Add one message more"));
+        assertThat(server.getRequests()).contains("POST /2.0/repositories/nfalco79/test-repos/pullrequests/1/approve");
+        // the single pull request fixture does not exists
+        assertThatThrownBy(() -> pullRequest.get(10, TimeUnit.SECONDS)) //
+                .isInstanceOf(ExecutionException.class) //
+                .hasCauseInstanceOf(ClientException.class);
+        assertThat(((ClientException) pullRequest.handle((pr, e) -> e).get()).getStatus()).isEqualTo(HttpStatus.SC_NOT_FOUND);
+    }
+
+}
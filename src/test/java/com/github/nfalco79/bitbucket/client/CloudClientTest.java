@@ -16,26 +16,39 @@
 package com.github.nfalco79.bitbucket.client;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
 import org.apache.hc.client5.http.classic.methods.HttpUriRequest;
 import org.apache.hc.core5.http.HttpHeaders;
 import org.apache.hc.core5.http.ProtocolException;
+import org.apache.hc.core5.net.URIBuilder;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
 
-import com.fasterxml.jackson.core.type.TypeReference;
 import com.github.nfalco79.bitbucket.client.Credentials.CredentialsBuilder;
+import com.github.nfalco79.bitbucket.client.internal.rest.PageReader;
+import com.github.nfalco79.bitbucket.client.internal.rest.PaginatedResponse;
+import com.github.nfalco79.bitbucket.client.internal.rest.RepositoryResponse;
 import com.github.nfalco79.bitbucket.client.model.Approval;
 import com.github.nfalco79.bitbucket.client.model.AuthToken;
 import com.github.nfalco79.bitbucket.client.model.BranchRestriction;
@@ -47,6 +60,7 @@ import com.github.nfalco79.bitbucket.client.model.Permission;
 import com.github.nfalco79.bitbucket.client.model.PullRequest;
 import com.github.nfalco79.bitbucket.client.model.Repository;
 import com.github.nfalco79.bitbucket.client.model.UserInfo;
+import com.github.nfalco79.bitbucket.client.model.Webhook;
 
 public class CloudClientTest {
 
@@ -61,7 +75,6 @@ public class CloudClientTest {
 
         uriCalls = new LinkedList<>();
         client = new BitbucketCloudClient(Mockito.mock(Credentials.class)) {
-            @SuppressWarnings("unchecked")
             @Override
             protected <T> T process(HttpUriRequest request, Object type) throws ClientException {
                 try {
@@ -69,13 +82,7 @@ public class CloudClientTest {
                     uriCalls.add(requestURI);
                     String resource = "/" + requestURI.getHost() + requestURI.getPath() + "/response.json";
                     try (InputStream is = CloudClientTest.class.getResourceAsStream(resource)) {
-                        if (type instanceof Class) {
-                            return objectMapper.readValue(is, (Class<T>) type);
-                        } else if (type instanceof TypeReference) {
-                            return objectMapper.readValue(is, (TypeReference<T>) type);
-                        } else {
-                            return null;
-                        }
+                        return readValue(is, type);
                     } catch (UnsupportedOperationException | IOException e) {
                         throw new ClientException("Fail to deserialize response.", e);
                     }
@@ -86,6 +93,28 @@ public class CloudClientTest {
         };
     }
 
+    private static <T> T asResponse(Object response, Object type, BitbucketCloudClient client) throws ClientException {
+        try {
+            return client.readValue(new ByteArrayInputStream(client.objectMapper.writeValueAsBytes(response)), type);
+        } catch (IOException e) {
+            throw new ClientException("Fail to deserialize response.", e);
+        }
+    }
+
+    @Test
+    public void page_reader_collects_next_after_values() throws Exception {
+        String json = "{\"values\": [{\"slug\": \"repo1\", \"links\": {\"self\": {\"href\": \"x\"}}}, null, {\"slug\": \"repo2\"}],"
+                + " \"unknown\": {\"next\": \"nested\"}, \"size\": 3, \"pagelen\": 2, \"page\": 1, \"next\": \"https://next\"}";
+        List<Repository> values = new LinkedList<>();
+        PaginatedResponse<Repository> page = client.readValue(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), //
+                new PageReader<Repository>(client.objectMapper.readerFor(Repository.class), values::add));
+
+        assertThat(values).extracting(Repository::getSlug).containsExactly("repo1", "repo2");
+        assertThat(page.getNext()).isEqualTo("https://next");
+        assertThat(page.getSize()).isEqualTo(3);
+        assertThat(page.getValues()).isEmpty();
+    }
+
     @Test
     public void get_logged_user() throws Exception {
         UserInfo userInfo = client.getUser();
@@ -99,6 +128,206 @@ public class CloudClientTest {
         assertThat(repositories).isNotEmpty();
     }
 
+    @Test
+    public void get_repositories_with_fields() throws Exception {
+        List<Repository> repositories = client.getRepositories(WORKSPACE, Fields.only("slug", "uuid", "project.key"));
+        assertThat(repositories).isNotEmpty();
+        assertThat(new URIBuilder(uriCalls.iterator().next()).getFirstQueryParam("fields").getValue()) //
+                .isEqualTo("values.slug,values.uuid,values.project.key,next,page,pagelen,size");
+    }
+
+    @Test
+    public void get_repositories_with_query() throws Exception {
+        client.getRepositories(WORKSPACE, Query.contains("name", "client").sortDescending("updated_on"));
+        URIBuilder uri = new URIBuilder(uriCalls.iterator().next());
+        assertThat(uri.getFirstQueryParam("q").getValue()).isEqualTo("name ~ \"client\"");
+        assertThat(uri.getFirstQueryParam("sort").getValue()).isEqualTo("-updated_on");
+    }
+
+    @Test
+    public void sync_pull_requests_stops_at_watermark() throws Exception {
+        WatermarkStore store = WatermarkStore.inMemory();
+
+        PullRequestChanges changes = client.syncPullRequests(WORKSPACE, "test-repos", store);
+        assertThat(changes.getPullRequests()).hasSize(2);
+        assertThat(changes.getWatermark()).isEqualTo(Instant.parse("2018-11-08T13:45:13.958Z"));
+        assertThat(store.get(WORKSPACE, "test-repos")).isEqualTo(changes.getWatermark());
+        URIBuilder uri = new URIBuilder(uriCalls.iterator().next());
+        assertThat(uri.getFirstQueryParam("q").getValue()).contains("state = \"MERGED\"").doesNotContain("updated_on");
+        assertThat(uri.getFirstQueryParam("sort").getValue()).isEqualTo("-updated_on");
+
+        store.put(WORKSPACE, "test-repos", Instant.parse("2018-10-01T00:00:00Z"));
+        changes = client.syncPullRequests(WORKSPACE, "test-repos", store);
+        assertThat(changes.getPullRequests()).extracting(PullRequest::getId).containsExactly(3);
+        assertThat(store.get(WORKSPACE, "test-repos")).isEqualTo(Instant.parse("2018-11-08T13:45:13.958Z"));
+
+        uriCalls.clear();
+        changes = client.syncPullRequests(WORKSPACE, "test-repos", store);
+        assertThat(changes.getPullRequests()).isEmpty();
+        assertThat(changes.getWatermark()).isEqualTo(Instant.parse("2018-11-08T13:45:13.958Z"));
+        assertThat(new URIBuilder(uriCalls.iterator().next()).getFirstQueryParam("q").getValue()) //
+                .endsWith(" AND updated_on >= 2018-11-08T13:45:13.958+00:00");
+        assertThat(store.getSeen(WORKSPACE, "test-repos")).containsExactly(3);
+    }
+
+    @Test
+    public void sync_pull_requests_returns_those_updated_at_watermark_not_seen() throws Exception {
+        WatermarkStore store = WatermarkStore.inMemory();
+        Instant watermark = Instant.parse("2018-11-08T13:45:13.958Z");
+        // an other pull request was seen in the same millisecond
+        store.put(WORKSPACE, "test-repos", watermark, Collections.singleton(2));
+
+        PullRequestChanges changes = client.syncPullRequests(WORKSPACE, "test-repos", store);
+
+        assertThat(changes.getPullRequests()).extracting(PullRequest::getId).containsExactly(3);
+        assertThat(changes.getWatermark()).isEqualTo(watermark);
+        assertThat(store.getSeen(WORKSPACE, "test-repos")).containsExactlyInAnyOrder(2, 3);
+    }
+
+    @Test
+    public void sync_pull_requests_wraps_store_failures() throws Exception {
+        WatermarkStore store = Mockito.mock(WatermarkStore.class);
+        Mockito.when(store.get(WORKSPACE, "test-repos")).thenThrow(new IOException("disk full"));
+
+        assertThatThrownBy(() -> client.syncPullRequests(WORKSPACE, "test-repos", store)) //
+                .isInstanceOf(ClientException.class) //
+                .hasRootCauseMessage("disk full");
+        assertThat(uriCalls).isEmpty();
+    }
+
+    @Test
+    public void stream_repositories_request_pages_on_demand() throws Exception {
+        AtomicInteger pages = new AtomicInteger();
+        try (BitbucketCloudClient client = new BitbucketCloudClient(Mockito.mock(Credentials.class)) {
+            @Override
+            protected <T> T process(HttpUriRequest request, Object type) throws ClientException {
+                int page = pages.incrementAndGet();
+                RepositoryResponse response = new RepositoryResponse();
+                response.getValues().add(new Repository("repo" + page));
+                response.setNext(page < 10 ? "https://api.bitbucket.org/2.0/repositories/" + WORKSPACE + "?page=" + (page + 1) : null);
+                return asResponse(response, type, this);
+            }
+        }) {
+            try (Stream<Repository> repositories = client.streamRepositories(WORKSPACE)) {
+                assertThat(pages).hasValue(0);
+                assertThat(repositories.filter(r -> "repo2".equals(r.getSlug())).findFirst()).isPresent();
+            }
+            assertThat(pages).hasValue(2);
+
+            pages.set(0);
+            assertThat(client.streamRepositories(WORKSPACE)).hasSize(10);
+        }
+    }
+
+    @Test
+    public void get_pages_concurrently_in_server_order() throws Exception {
+        Collection<String> requests = new ConcurrentLinkedQueue<>();
+        try (BitbucketCloudClient client = new BitbucketCloudClient(Mockito.mock(Credentials.class)) {
+            @Override
+            protected <T> T process(HttpUriRequest request, Object type) throws ClientException {
+                try {
+                    URIBuilder uri = new URIBuilder(request.getUri());
+                    requests.add(uri.toString());
+                    int page = uri.getFirstQueryParam("page") == null ? 1 : Integer.parseInt(uri.getFirstQueryParam("page").getValue());
+                    RepositoryResponse response = new RepositoryResponse();
+                    response.setPage(page);
+                    response.setPagelen(2);
+                    response.setSize(9);
+                    response.getValues().add(new Repository("repo" + (page * 2 - 1)));
+                    if (page < 5) {
+                        response.getValues().add(new Repository("repo" + page * 2));
+                        response.setNext(uri.setParameter("page", String.valueOf(page + 1)).toString());
+                    }
+                    return asResponse(response, type, this);
+                } catch (URISyntaxException e) {
+                    throw new ClientException("unexpected failure", e);
+                }
+            }
+        }) {
+            client.setPageConcurrency(3);
+            List<Repository> repositories = client.getRepositories(WORKSPACE);
+            assertThat(repositories).extracting(Repository::getSlug) //
+                    .containsExactly("repo1", "repo2", "repo3", "repo4", "repo5", "repo6", "repo7", "repo8", "repo9");
+            assertThat(requests).hasSize(5).doesNotHaveDuplicates();
+        }
+    }
+
+    @Test
+    public void page_concurrency_bounds_in_flight_pages_and_can_change_meanwhile() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        try (BitbucketCloudClient client = new BitbucketCloudClient(Mockito.mock(Credentials.class)) {
+            @Override
+            protected <T> T process(HttpUriRequest request, Object type) throws ClientException {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    URIBuilder uri = new URIBuilder(request.getUri());
+                    int page = uri.getFirstQueryParam("page") == null ? 1 : Integer.parseInt(uri.getFirstQueryParam("page").getValue());
+                    if (page == 3) {
+                        // replaces the executor while pages are submitted to it
+                        setPageConcurrency(4);
+                    }
+                    Thread.sleep(20);
+                    RepositoryResponse response = new RepositoryResponse();
+                    response.setPage(page);
+                    response.setPagelen(1);
+                    response.setSize(12);
+                    response.getValues().add(new Repository("repo" + page));
+                    if (page < 12) {
+                        response.setNext(uri.setParameter("page", String.valueOf(page + 1)).toString());
+                    }
+                    return asResponse(response, type, this);
+                } catch (URISyntaxException | InterruptedException e) {
+                    throw new ClientException("unexpected failure", e);
+                } finally {
+                    running.decrementAndGet();
+                }
+            }
+        }) {
+            client.setPageConcurrency(2);
+            assertThat(client.getRepositories(WORKSPACE)).hasSize(12);
+            assertThat(maxRunning.get()).isBetween(1, 2);
+            assertThat(client.getRepositories(WORKSPACE)).hasSize(12);
+        }
+    }
+
+    @Test
+    public void for_each_repository_collects_failures_within_concurrency() throws Exception {
+        try (BitbucketCloudClient client = new BitbucketCloudClient(Mockito.mock(Credentials.class)) {
+            @Override
+            protected <T> T process(HttpUriRequest request, Object type) throws ClientException {
+                RepositoryResponse response = new RepositoryResponse();
+                for (int i = 1; i <= 20; i++) {
+                    response.getValues().add(new Repository("repo" + i));
+                }
+                return asResponse(response, type, this);
+            }
+        }) {
+            AtomicInteger running = new AtomicInteger();
+            AtomicInteger maxRunning = new AtomicInteger();
+            BatchResult<String> result = client.forEachRepository(WORKSPACE, 3, repository -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(10);
+                    if ("repo7".equals(repository.getSlug())) {
+                        throw new ClientException("forbidden", new IOException());
+                    }
+                    return repository.getSlug().toUpperCase();
+                } catch (InterruptedException e) {
+                    throw new ClientException("interrupted", e);
+                } finally {
+                    running.decrementAndGet();
+                }
+            });
+
+            assertThat(maxRunning.get()).isBetween(1, 3);
+            assertThat(result.isSuccessful()).isFalse();
+            assertThat(result.getResults()).hasSize(19).containsEntry("repo1", "REPO1");
+            assertThat(result.getFailures()).containsOnlyKeys("repo7");
+            assertThat(result.getFailures().get("repo7")).isInstanceOf(ClientException.class);
+        }
+    }
+
     @Test
     public void branch_restrictions() throws Exception {
         List<BranchRestriction> restrictions = client.getBranchRestrictions(WORKSPACE, "test-repos");
@@ -107,6 +336,144 @@ public class CloudClientTest {
                 .contains(Builder.newMinApprovalsPermission("master", 2));
     }
 
+    @Test
+    public void reconcile_branch_restrictions_sends_only_changes() throws Exception {
+        Collection<String> calls = new ConcurrentLinkedQueue<>();
+        try (BitbucketCloudClient client = new BitbucketCloudClient(Mockito.mock(Credentials.class)) {
+            @Override
+            protected <T> T process(HttpUriRequest request, Object type) throws ClientException {
+                calls.add(request.getMethod() + " " + request.getRequestUri());
+                return CloudClientTest.this.client.process(request, type);
+            }
+        }) {
+            List<BranchRestriction> desired = Arrays.asList(Builder.newDeletePermission("master"), //
+                    Builder.newForcePushPermission("master"), //
+                    Builder.newMinApprovalsPermission("master", 3), //
+                    Builder.newRequireTasksCompletion("master"));
+
+            ReconcileReport<BranchRestriction> report = client.reconcileBranchRestrictions(WORKSPACE, "test-repos", desired, false);
+            assertThat(report.getUpdated()).containsExactly(Builder.newMinApprovalsPermission("master", 3));
+            assertThat(report.getCreated()).containsExactly(Builder.newRequireTasksCompletion("master"));
+            assertThat(report.getDeleted()).isEmpty();
+            assertThat(calls).containsExactly("GET /2.0/repositories/nfalco79/test-repos/branch-restrictions?pagelen=100", //
+                    "PUT /2.0/repositories/nfalco79/test-repos/branch-restrictions/26155267", //
+                    "POST /2.0/repositories/nfalco79/test-repos/branch-restrictions");
+            assertThat(desired.get(2).getId()).isNull();
+
+            calls.clear();
+            report = client.reconcileBranchRestrictions(WORKSPACE, "test-repos", desired, true);
+            assertThat(report.getDeleted()).extracting(BranchRestriction::getId).containsExactly(26155268, 26155266, 26155265);
+            assertThat(calls).contains("DELETE /2.0/repositories/nfalco79/test-repos/branch-restrictions/26155265");
+        }
+    }
+
+    @Test
+    public void apply_group_permissions_skips_unchanged_and_collects_failures() throws Exception {
+        Collection<String> calls = new ConcurrentLinkedQueue<>();
+        try (BitbucketCloudClient client = new BitbucketCloudClient(Mockito.mock(Credentials.class)) {
+            @Override
+            protected <T> T process(HttpUriRequest request, Object type) throws ClientException {
+                calls.add(request.getMethod() + " " + request.getRequestUri());
+                if (request.getRequestUri().contains("/missing/")) {
+                    throw new ClientException("Not found", new IOException());
+                }
+                return CloudClientTest.this.client.process(request, type);
+            }
+        }) {
+            BatchResult<GroupPermissionChange.Outcome> result = client.applyGroupPermissions(WORKSPACE, Arrays.asList( //
+                    new GroupPermissionChange("test-repos", "devops", Permission.ADMIN), //
+                    new GroupPermissionChange("test-repos", "developers", Permission.WRITE), //
+                    new GroupPermissionChange("test-repos", "administrators", Permission.NONE), //
+                    new GroupPermissionChange("missing", "devops", Permission.READ)), 2);
+
+            assertThat(result.getResults()).containsEntry("test-repos/devops", GroupPermissionChange.Outcome.UNCHANGED) //
+                    .containsEntry("test-repos/developers", GroupPermissionChange.Outcome.UPDATED) //
+                    .containsEntry("test-repos/administrators", GroupPermissionChange.Outcome.DELETED);
+            assertThat(result.getFailures()).containsOnlyKeys("missing/devops");
+            assertThat(calls).filteredOn(call -> call.contains("/test-repos/")).containsExactly( //
+                    "GET /2.0/repositories/nfalco79/test-repos/permissions-config/groups", //
+                    "PUT /2.0/repositories/nfalco79/test-repos/permissions-config/groups/developers", //
+                    "DELETE /2.0/repositories/nfalco79/test-repos/permissions-config/groups/administrators");
+        }
+    }
+
+    @Test
+    public void reconcile_webhooks_by_url_and_events() throws Exception {
+        Collection<String> calls = new ConcurrentLinkedQueue<>();
+        try (BitbucketCloudClient client = new BitbucketCloudClient(Mockito.mock(Credentials.class)) {
+            @Override
+            protected <T> T process(HttpUriRequest request, Object type) throws ClientException {
+                calls.add(request.getMethod() + " " + request.getRequestUri());
+                if (!"GET".equals(request.getMethod())) {
+                    return null;
+                }
+                return CloudClientTest.this.client.process(request, type);
+            }
+        }) {
+            Webhook ci = new Webhook();
+            ci.setUrl("https://ci.example.com/bitbucket-scmsource-hook/notify");
+            ci.setEvents(Arrays.asList(Webhook.PULLREQUEST_CREATED, Webhook.REPO_PUSH));
+            Webhook audit = new Webhook();
+            audit.setUrl("https://audit.example.com/events");
+            audit.setEvents(Arrays.asList(Webhook.REPO_PUSH, Webhook.PULLREQUEST_FULFILLED));
+            Webhook sink = new Webhook();
+            sink.setUrl("https://sink.example.com/events");
+            sink.setEvents(Arrays.asList(Webhook.REPO_PUSH));
+
+            ReconcileReport<Webhook> report = client.reconcileWebhooks(WORKSPACE, "test-repos", Arrays.asList(ci, audit, sink), true);
+            assertThat(report.getUpdated()).containsExactly(audit);
+            assertThat(report.getCreated()).containsExactly(sink);
+            assertThat(report.getDeleted()).extracting(Webhook::getUrl).containsExactly("https://old.example.com/hook");
+            assertThat(calls).containsExactly("GET /2.0/repositories/nfalco79/test-repos/hooks?pagelen=100", //
+                    "PUT /2.0/repositories/nfalco79/test-repos/hooks/%7B8e1f2d3c-4b5a-6978-8a9b-0c1d2e3f4a5b%7D", //
+                    "DELETE /2.0/repositories/nfalco79/test-repos/hooks/%7B0a1b2c3d-4e5f-6a7b-8c9d-0e1f2a3b4c5d%7D", //
+                    "POST /2.0/repositories/nfalco79/test-repos/hooks");
+        }
+    }
+
+    @Test
+    public void reconcile_webhooks_without_events_fails_before_any_request() throws Exception {
+        Webhook ci = new Webhook();
+        ci.setUrl("https://ci.example.com/bitbucket-scmsource-hook/notify");
+
+        assertThatThrownBy(() -> client.reconcileWebhooks(WORKSPACE, "test-repos", Arrays.asList(ci), true)) //
+                .isInstanceOf(IllegalArgumentException.class) //
+                .hasMessageContaining(ci.getUrl());
+        assertThatThrownBy(() -> client.reconcileWebhooks(WORKSPACE, 2, Arrays.asList(ci), true)) //
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(uriCalls).isEmpty();
+    }
+
+    @Test
+    public void cached_branch_restrictions_are_copies_invalidated_on_update() throws Exception {
+        client.setCachePolicy(CachedOperation.BRANCH_RESTRICTIONS, Duration.ofMinutes(5), 10);
+
+        List<BranchRestriction> restrictions = client.getBranchRestrictions(WORKSPACE, "test-repos");
+        restrictions.get(0).setPattern("changed");
+        List<BranchRestriction> cached = client.getBranchRestrictions(WORKSPACE, "test-repos");
+        assertThat(cached).isNotSameAs(restrictions).hasSameSizeAs(restrictions);
+        assertThat(cached.get(0).getPattern()).isEqualTo("master");
+        assertThat(uriCalls).hasSize(1);
+        assertThat(client.getCacheStats(CachedOperation.BRANCH_RESTRICTIONS).getHits()).isEqualTo(1);
+
+        client.updateBranchRestriction(WORKSPACE, "test-repos", Builder.newDeletePermission("develop"));
+        client.getBranchRestrictions(WORKSPACE, "test-repos");
+        assertThat(uriCalls).hasSize(3);
+    }
+
+    @Test
+    public void cached_group_permissions_expire() throws Exception {
+        client.setCachePolicy(CachedOperation.GROUP_PERMISSIONS, Duration.ofMillis(50), 10);
+
+        Map<GroupInfo, Permission> rights = client.getGroupsPermissions(WORKSPACE, "test-repos");
+        assertThat(client.getGroupsPermissions(WORKSPACE, "test-repos")).isEqualTo(rights);
+        assertThat(uriCalls).hasSize(1);
+
+        Thread.sleep(100);
+        assertThat(client.getGroupsPermissions(WORKSPACE, "test-repos")).isEqualTo(rights);
+        assertThat(uriCalls).hasSize(2);
+    }
+
     @Test
     public void user_permission() throws Exception {
         Permission rights = client.getPermission("test-repos");
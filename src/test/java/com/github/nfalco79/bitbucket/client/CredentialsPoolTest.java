@@ -0,0 +1,88 @@
+/*
+ * Copyright 2022 Falco Nikolas
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.nfalco79.bitbucket.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hc.core5.http.HttpStatus;
+import org.apache.hc.core5.http.message.BasicHttpResponse;
+import org.junit.Test;
+
+import com.github.nfalco79.bitbucket.client.Credentials.CredentialsBuilder;
+import com.github.nfalco79.bitbucket.client.CredentialsPool.Strategy;
+
+public class CredentialsPoolTest {
+
+    private final Credentials user1 = CredentialsBuilder.appPassword("user1", "password");
+    private final Credentials user2 = CredentialsBuilder.appPassword("user2", "password");
+    private final Credentials user3 = CredentialsBuilder.appPassword("user3", "password");
+
+    @Test
+    public void round_robin_skips_paused_credentials() throws Exception {
+        RateLimiter limiter = new RateLimiter();
+        CredentialsPool pool = new CredentialsPool(user1, user2, user3);
+
+        limiter.bucket(user2).pause(TimeUnit.MINUTES.toNanos(1));
+
+        assertThat(pool.next(limiter)).isSameAs(user1);
+        assertThat(pool.next(limiter)).isSameAs(user3);
+        assertThat(pool.next(limiter)).isSameAs(user3);
+        assertThat(pool.next(limiter)).isSameAs(user1);
+    }
+
+    @Test
+    public void all_paused_returns_the_first_to_resume() throws Exception {
+        RateLimiter limiter = new RateLimiter();
+        CredentialsPool pool = new CredentialsPool(user1, user2);
+
+        limiter.bucket(user1).pause(TimeUnit.MINUTES.toNanos(2));
+        limiter.bucket(user2).pause(TimeUnit.MINUTES.toNanos(1));
+
+        assertThat(pool.next(limiter)).isSameAs(user2);
+        assertThat(pool.next(limiter)).isSameAs(user2);
+    }
+
+    @Test
+    public void least_used_prefers_largest_remaining_quota() throws Exception {
+        RateLimiter limiter = new RateLimiter();
+        CredentialsPool pool = new CredentialsPool(Strategy.LEAST_USED, Arrays.asList(user1, user2, user3));
+
+        limiter.onResponse(limiter.bucket(user1), remaining(10), 0);
+        limiter.onResponse(limiter.bucket(user2), remaining(500), 0);
+        limiter.onResponse(limiter.bucket(user3), remaining(20), 0);
+
+        assertThat(pool.next(limiter)).isSameAs(user2);
+    }
+
+    @Test
+    public void least_used_balances_requests_without_quota() throws Exception {
+        RateLimiter limiter = new RateLimiter();
+        CredentialsPool pool = new CredentialsPool(Strategy.LEAST_USED, Arrays.asList(user1, user2));
+
+        limiter.bucket(user1).reserve();
+
+        assertThat(pool.next(limiter)).isSameAs(user2);
+    }
+
+    private BasicHttpResponse remaining(int remaining) {
+        BasicHttpResponse response = new BasicHttpResponse(HttpStatus.SC_OK);
+        response.setHeader(RateLimiter.HEADER_REMAINING, String.valueOf(remaining));
+        return response;
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2022 Falco Nikolas
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.nfalco79.bitbucket.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.Test;
+
+public class FieldsTest {
+
+    @Test
+    public void only_keeps_pagination_fields() throws Exception {
+        Fields fields = Fields.only("slug", "project.key");
+
+        assertThat(fields.toQuery(false)).isEqualTo("slug,project.key");
+        assertThat(fields.toQuery(true)).isEqualTo("values.slug,values.project.key,next,page,pagelen,size");
+    }
+
+    @Test
+    public void exclude_and_include_are_prefixed() throws Exception {
+        Fields fields = Fields.all().exclude("links").include("owner.display_name");
+
+        assertThat(fields.toQuery(false)).isEqualTo("-links,+owner.display_name");
+        assertThat(fields.toQuery(true)).isEqualTo("-values.links,+values.owner.display_name");
+        assertThat(Fields.all().toQuery(true)).isNull();
+    }
+
+    @Test
+    public void invalid_paths_are_rejected() throws Exception {
+        assertThatThrownBy(() -> Fields.only("slug,uuid")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Fields.all().exclude("-links")).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2022 Falco Nikolas
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.nfalco79.bitbucket.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.apache.hc.core5.http.HttpStatus;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.nfalco79.bitbucket.client.Credentials.CredentialsBuilder;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+public class FlightRecorderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private BitbucketStubServer server;
+
+    @Before
+    public void startServer() throws Exception {
+        server = new BitbucketStubServer().start();
+    }
+
+    @After
+    public void stopServer() {
+        server.close();
+    }
+
+    @Test
+    public void requests_and_pages_are_recorded() throws Exception {
+        server.dataset("/2.0/repositories/nfalco79", 150);
+        Path dump = folder.getRoot().toPath().resolve("bitbucket.jfr");
+
+        try (Recording recording = new Recording();
+                BitbucketCloudClient client = new BitbucketCloudClient(CredentialsBuilder.anonymous(), server.configure(new TransportConfig()))) {
+            recording.enable(RequestEvent.NAME);
+            recording.enable(PageEvent.NAME);
+            recording.start();
+            server.failNext(HttpStatus.SC_TOO_MANY_REQUESTS, 1);
+            assertThat(client.getRepositories("nfalco79")).hasSize(150);
+            recording.stop();
+            recording.dump(dump);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+        List<RecordedEvent> requests = events.stream() //
+                .filter(event -> RequestEvent.NAME.equals(event.getEventType().getName())) //
+                .collect(Collectors.toList());
+        assertThat(requests).hasSize(3);
+        assertThat(requests).allSatisfy(event -> {
+            assertThat(event.getString("endpoint")).isEqualTo("/2.0/repositories/{workspace}");
+            assertThat(event.getString("method")).isEqualTo("GET");
+            assertThat(event.getDuration()).isPositive();
+        });
+        assertThat(requests).extracting(event -> event.getInt("status")) //
+                .containsExactlyInAnyOrder(HttpStatus.SC_TOO_MANY_REQUESTS, HttpStatus.SC_OK, HttpStatus.SC_OK);
+        RecordedEvent retried = requests.stream().filter(event -> event.getInt("retries") == 1).findFirst().get();
+        assertThat(retried.getInt("status")).isEqualTo(HttpStatus.SC_OK);
+        assertThat(retried.getLong("bytesIn")).isPositive();
+        assertThat(retried.getDuration("timeToFirstByte")).isPositive();
+        assertThat(retried.getDuration("bindingTime")).isPositive();
+
+        List<RecordedEvent> pages = events.stream() //
+                .filter(event -> PageEvent.NAME.equals(event.getEventType().getName())) //
+                .collect(Collectors.toList());
+        assertThat(pages).hasSize(1);
+        assertThat(pages.get(0).getString("endpoint")).isEqualTo("/2.0/repositories/{workspace}");
+        assertThat(pages.get(0).getInt("pages")).isEqualTo(2);
+        assertThat(pages.get(0).getInt("elements")).isEqualTo(150);
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2022 Falco Nikolas
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.nfalco79.bitbucket.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import org.apache.hc.core5.http.HttpStatus;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.nfalco79.bitbucket.client.Credentials.CredentialsBuilder;
+import com.github.nfalco79.bitbucket.client.InMemoryMetrics.EndpointMetrics;
+
+public class MetricsTest {
+
+    private BitbucketStubServer server;
+
+    @Before
+    public void startServer() throws Exception {
+        server = new BitbucketStubServer().start();
+    }
+
+    @After
+    public void stopServer() {
+        server.close();
+    }
+
+    @Test
+    public void histogram_percentiles() {
+        Histogram histogram = new Histogram();
+        for (int i = 1; i <= 100_000; i++) {
+            histogram.record(i * 1000L);
+        }
+        assertThat(histogram.getCount()).isEqualTo(100_000);
+        assertThat(histogram.getMax()).isEqualTo(100_000_000L);
+        assertThat(histogram.getMean()).isCloseTo(50_000_500d, within(1d));
+        assertThat(histogram.getValueAtPercentile(50)).isCloseTo(50_000_000L, within(800_000L));
+        assertThat(histogram.getValueAtPercentile(99)).isCloseTo(99_000_000L, within(1_600_000L));
+        assertThat(histogram.getValueAtPercentile(100)).isEqualTo(100_000_000L);
+
+        histogram.reset();
+        assertThat(histogram.getCount()).isZero();
+        assertThat(histogram.getValueAtPercentile(99)).isZero();
+    }
+
+    @Test
+    public void histogram_records_small_values_exactly() {
+        Histogram histogram = new Histogram();
+        for (int i = 0; i < 128; i++) {
+            histogram.record(i);
+        }
+        assertThat(histogram.getValueAtPercentile(50)).isEqualTo(63);
+        assertThat(histogram.getValueAtPercentile(100)).isEqualTo(127);
+    }
+
+    @Test
+    public void requests_are_measured_by_endpoint() throws Exception {
+        server.dataset("/2.0/repositories/nfalco79", 250);
+        InMemoryMetrics metrics = new InMemoryMetrics();
+
+        try (BitbucketCloudClient client = new BitbucketCloudClient(CredentialsBuilder.oauth2("client-id", "client-secret"), server.configure(new TransportConfig()))) {
+            client.setMetricsListener(metrics);
+            server.failNext(HttpStatus.SC_TOO_MANY_REQUESTS, 1);
+            assertThat(client.getRepositories("nfalco79")).hasSize(250);
+        }
+
+        EndpointMetrics repositories = metrics.getEndpoint("/2.0/repositories/{workspace}");
+        assertThat(repositories).isNotNull();
+        assertThat(repositories.getStatusCounts()).containsEntry(HttpStatus.SC_OK, 3L) //
+                .containsEntry(HttpStatus.SC_TOO_MANY_REQUESTS, 1L);
+        assertThat(repositories.getRetries()).isEqualTo(1);
+        assertThat(repositories.getLatency().getCount()).isEqualTo(4);
+        assertThat(repositories.getLatency().getValueAtPercentile(50)).isPositive();
+        assertThat(repositories.getLatency().getValueAtPercentile(99)).isGreaterThanOrEqualTo(repositories.getLatency().getValueAtPercentile(50));
+        assertThat(repositories.getTimeToFirstByte().getCount()).isEqualTo(4);
+        assertThat(repositories.getBindingTime().getCount()).isEqualTo(3);
+        assertThat(repositories.getPages().getCount()).isEqualTo(1);
+        assertThat(repositories.getPages().getMax()).isEqualTo(3);
+        assertThat(repositories.getBytesIn()).isPositive();
+        assertThat(repositories.getBytesOut()).isZero();
+
+        metrics.reset();
+        assertThat(repositories.getLatency().getCount()).isZero();
+        assertThat(repositories.getStatusCounts()).isEmpty();
+    }
+
+    @Test
+    public void token_grants_are_measured() throws Exception {
+        InMemoryMetrics metrics = new InMemoryMetrics();
+        try (BitbucketCloudClient client = new BitbucketCloudClient(CredentialsBuilder.anonymous(), server.configure(new TransportConfig()))) {
+            client.setMetricsListener(metrics);
+            client.setCredentials(CredentialsBuilder.oauth2("client-id", "client-secret"));
+            assertThat(client.getUser()).isNotNull();
+        }
+        assertThat(metrics.getTokenGrants()).isEqualTo(1);
+        assertThat(metrics.getTokenRenewals()).isZero();
+        EndpointMetrics token = metrics.getEndpoint("/site/oauth2/access_token");
+        assertThat(token.getStatusCounts()).containsOnlyKeys(HttpStatus.SC_OK);
+        assertThat(token.getBytesOut()).isPositive();
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2022 Falco Nikolas
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.nfalco79.bitbucket.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Instant;
+
+import org.junit.Test;
+
+import com.github.nfalco79.bitbucket.client.model.Permission;
+
+public class QueryTest {
+
+    @Test
+    public void strings_are_quoted_and_escaped() throws Exception {
+        assertThat(Query.eq("repository.name", "my \"repo\" \\ 1").getExpression()) //
+                .isEqualTo("repository.name = \"my \\\"repo\\\" \\\\ 1\"");
+    }
+
+    @Test
+    public void literals_are_formatted_by_type() throws Exception {
+        assertThat(Query.gt("updated_on", Instant.parse("2024-03-01T10:15:30Z")).getExpression()) //
+                .isEqualTo("updated_on > 2024-03-01T10:15:30.000+00:00");
+        assertThat(Query.eq("permission", Permission.ADMIN).getExpression()).isEqualTo("permission = \"admin\"");
+        assertThat(Query.ne("id", 10).getExpression()).isEqualTo("id != 10");
+        assertThat(Query.eq("is_private", true).getExpression()).isEqualTo("is_private = true");
+    }
+
+    @Test
+    public void mixed_operators_are_grouped() throws Exception {
+        Query query = Query.eq("state", "OPEN").or(Query.eq("state", "MERGED")) //
+                .and(Query.contains("title", "fix")) //
+                .and(Query.gt("id", 1)) //
+                .sortDescending("updated_on");
+
+        assertThat(query.getExpression()).isEqualTo("(state = \"OPEN\" OR state = \"MERGED\") AND title ~ \"fix\" AND id > 1");
+        assertThat(query.getSort()).isEqualTo("-updated_on");
+        assertThat(Query.all().sortAscending("name").getExpression()).isNull();
+    }
+
+    @Test
+    public void invalid_fields_are_rejected() throws Exception {
+        assertThatThrownBy(() -> Query.eq("name = \"x\" OR name", "y")).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2022 Falco Nikolas
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.nfalco79.bitbucket.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.hc.core5.http.HttpStatus;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.github.nfalco79.bitbucket.client.Credentials.CredentialsBuilder;
+import com.github.nfalco79.bitbucket.client.model.UserInfo;
+
+public class RateLimitTest {
+
+    /*
+     * Time passes only when the rate limiter waits.
+     */
+    private static class ManualClock implements RateLimiter.Clock {
+        private final AtomicLong now = new AtomicLong();
+        private final Collection<Long> waits = new ConcurrentLinkedQueue<>();
+
+        @Override
+        public long nanoTime() {
+            return now.get();
+        }
+
+        @Override
+        public void sleep(long nanos) {
+            waits.add(nanos);
+            now.addAndGet(nanos);
+        }
+    }
+
+    private BitbucketStubServer server;
+    private ManualClock clock;
+    private BitbucketCloudClient client;
+
+    @Before
+    public void setupServer() throws Exception {
+        server = new BitbucketStubServer().retryAfter(Duration.ofSeconds(1)).start();
+        clock = new ManualClock();
+        client = new BitbucketCloudClient(Mockito.mock(Credentials.class), server.configure(new TransportConfig()));
+        client.getRateLimiter().setClock(clock);
+    }
+
+    @After
+    public void shutdownServer() throws Exception {
+        client.close();
+        server.close();
+    }
+
+    @Test
+    public void too_many_requests_waits_retry_after() throws Exception {
+        server.failNext(HttpStatus.SC_TOO_MANY_REQUESTS, 1);
+
+        UserInfo user = client.getUser();
+
+        assertThat(user).isNotNull();
+        assertThat(server.getRequests()).hasSize(2);
+        assertThat(clock.waits).containsExactly(TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Test
+    public void too_many_requests_fails_when_retries_are_exhausted() throws Exception {
+        server.failNext(HttpStatus.SC_TOO_MANY_REQUESTS, Integer.MAX_VALUE);
+        client.setMaxRateLimitRetries(0);
+
+        assertThatThrownBy(() -> client.getUser()) //
+                .isInstanceOf(ClientException.class);
+        assertThat(server.getRequests()).hasSize(1);
+    }
+
+    @Test
+    public void too_many_requests_retries_with_other_credentials_of_pool() throws Exception {
+        server.failNext(HttpStatus.SC_TOO_MANY_REQUESTS, 1);
+        client.setCredentialsPool(new CredentialsPool(CredentialsBuilder.appPassword("user1", "password"), //
+                CredentialsBuilder.appPassword("user2", "password")));
+
+        UserInfo user = client.getUser();
+
+        assertThat(user).isNotNull();
+        assertThat(server.getRequests()).hasSize(2);
+        assertThat(clock.waits).isEmpty();
+    }
+
+    @Test
+    public void requests_are_spread_by_token_bucket() throws Exception {
+        client.setRateLimit(10, 1);
+
+        for (int i = 0; i < 4; i++) {
+            client.getUser();
+        }
+
+        // first one is free, the others wait 100ms each
+        assertThat(clock.waits).hasSize(3) //
+                .allSatisfy(wait -> assertThat(wait).isBetween(TimeUnit.MILLISECONDS.toNanos(99), TimeUnit.MILLISECONDS.toNanos(100)));
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2022 Falco Nikolas
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.nfalco79.bitbucket.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.github.nfalco79.bitbucket.client.model.Repository;
+import com.github.nfalco79.bitbucket.client.model.UserInfo;
+
+public class RequestCoalescingTest {
+
+    private BitbucketStubServer server;
+    private BitbucketCloudClient client;
+
+    @Before
+    public void setupServer() throws Exception {
+        server = new BitbucketStubServer().hold().start();
+        client = new BitbucketCloudClient(Mockito.mock(Credentials.class), server.configure(new TransportConfig()));
+        client.setCoalesceRequests(true);
+    }
+
+    @After
+    public void shutdownServer() throws Exception {
+        client.close();
+        server.close();
+    }
+
+    private <T> List<T> concurrently(int callers, Callable<T> call) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<T>> futures = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                futures.add(executor.submit(call));
+            }
+            // all callers are waiting the response of the first one
+            long timeout = System.currentTimeMillis() + 5000;
+            while (server.getRequests().isEmpty() && System.currentTimeMillis() < timeout) {
+                Thread.sleep(10);
+            }
+            Thread.sleep(200);
+            server.release();
+
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : futures) {
+                results.add(future.get(10, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void concurrent_get_share_one_exchange() throws Exception {
+        List<UserInfo> users = concurrently(5, client::getUser);
+
+        assertThat(server.getRequests()).hasSize(1);
+        assertThat(users).hasSize(5).allSatisfy(user -> assertThat(user).isSameAs(users.get(0)));
+    }
+
+    @Test
+    public void concurrent_pages_are_replayed_to_each_caller() throws Exception {
+        List<List<Repository>> repositories = concurrently(4, () -> client.getRepositories("nfalco79"));
+
+        assertThat(server.getRequests()).hasSize(1);
+        assertThat(repositories).allSatisfy(list -> assertThat(list).isNotEmpty().isEqualTo(repositories.get(0)));
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2022 Falco Nikolas
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.nfalco79.bitbucket.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.apache.hc.core5.http.HttpStatus;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.github.nfalco79.bitbucket.client.Credentials.CredentialsBuilder;
+import com.github.nfalco79.bitbucket.client.model.Repository;
+import com.github.nfalco79.bitbucket.client.model.UserInfo;
+
+public class ResponseCacheTest {
+
+    private static final String WORKSPACE = "nfalco79";
+
+    private BitbucketStubServer server;
+    private BitbucketCloudClient client;
+
+    @Before
+    public void setupServer() throws Exception {
+        server = new BitbucketStubServer().etag("\"v1\"").start();
+        client = new BitbucketCloudClient(Mockito.mock(Credentials.class), server.configure(new TransportConfig()));
+        client.setResponseCacheSize(10);
+    }
+
+    @After
+    public void shutdownServer() throws Exception {
+        client.close();
+        server.close();
+    }
+
+    @Test
+    public void not_modified_returns_the_cached_object() throws Exception {
+        UserInfo user = client.getUser();
+        assertThat(client.getUser()).isSameAs(user);
+        assertThat(server.getResponses()).containsExactly(HttpStatus.SC_OK, HttpStatus.SC_NOT_MODIFIED);
+
+        server.etag("\"v2\"");
+        assertThat(client.getUser()).isNotSameAs(user).isEqualTo(user);
+        assertThat(client.getResponseCacheStats().getHits()).isEqualTo(1);
+        assertThat(client.getResponseCacheStats().getMisses()).isEqualTo(2);
+    }
+
+    @Test
+    public void not_modified_replays_page_elements() throws Exception {
+        List<Repository> repositories = client.getRepositories(WORKSPACE);
+        assertThat(client.getRepositories(WORKSPACE)).isEqualTo(repositories).isNotEmpty();
+        assertThat(server.getResponses()).containsExactly(HttpStatus.SC_OK, HttpStatus.SC_NOT_MODIFIED);
+        assertThat(client.getResponseCacheStats().getSize()).isEqualTo(1);
+    }
+
+    @Test
+    public void least_recently_used_are_evicted() throws Exception {
+        client.setResponseCacheSize(1);
+        client.getUser();
+        client.getRepositories(WORKSPACE);
+        client.getUser();
+        assertThat(server.getResponses()).containsOnly(HttpStatus.SC_OK);
+        assertThat(client.getResponseCacheStats().getSize()).isEqualTo(1);
+    }
+
+    @Test
+    public void responses_are_not_shared_between_credentials() throws Exception {
+        client.setCredentialsPool(new CredentialsPool(CredentialsBuilder.appPassword("user1", "password"), //
+                CredentialsBuilder.appPassword("user2", "password")));
+
+        client.getUser();
+        client.getUser();
+        client.getUser();
+
+        assertThat(server.getResponses()).containsExactly(HttpStatus.SC_OK, HttpStatus.SC_OK, HttpStatus.SC_NOT_MODIFIED);
+        assertThat(client.getResponseCacheStats().getSize()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2022 Falco Nikolas
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.nfalco79.bitbucket.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.nfalco79.bitbucket.client.model.BranchRestriction;
+import com.github.nfalco79.bitbucket.client.model.GroupInfo;
+import com.github.nfalco79.bitbucket.client.model.GroupPermission;
+import com.github.nfalco79.bitbucket.client.model.Permission;
+import com.github.nfalco79.bitbucket.client.model.Repository;
+import com.github.nfalco79.bitbucket.client.model.Webhook;
+
+public class SnapshotStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static Repository repository(String slug) {
+        Repository repository = new Repository();
+        repository.setSlug(slug);
+        repository.setName(slug.toUpperCase());
+        return repository;
+    }
+
+    @Test
+    public void records_are_read_after_reopen() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("workspace.snapshot");
+        GroupPermission permission = new GroupPermission();
+        permission.setGroup(new GroupInfo("developers"));
+        permission.setPermission(Permission.WRITE);
+        Webhook webhook = new Webhook();
+        webhook.setUrl("https://ci.example.com/hook");
+        webhook.setEvents(Arrays.asList(Webhook.REPO_PUSH));
+
+        try (SnapshotStore store = SnapshotStore.open(file)) {
+            store.putRepository(repository("client"));
+            store.putRepository(repository("server"));
+            store.putBranchRestrictions("client", Arrays.asList(BranchRestriction.Builder.newDeletePermission("master")));
+            store.putGroupPermissions("client", Arrays.asList(permission));
+            store.putWebhooks("client", Arrays.asList(webhook));
+            // supersedes the previous record
+            store.putRepository(repository("server"));
+            store.remove("server");
+        }
+
+        try (SnapshotStore store = SnapshotStore.open(file)) {
+            assertThat(store.getRepositories()).containsExactly("client");
+            assertThat(store.getRepository("client").getName()).isEqualTo("CLIENT");
+            assertThat(store.getBranchRestrictions("client")).containsExactly(BranchRestriction.Builder.newDeletePermission("master"));
+            assertThat(store.getGroupPermissions("client")).extracting(GroupPermission::getPermission).containsExactly(Permission.WRITE);
+            assertThat(store.getWebhooks("client")).containsExactly(webhook);
+            assertThat(store.getRepository("server")).isNull();
+            assertThat(store.getWebhooks("server")).isNull();
+        }
+    }
+
+    @Test
+    public void truncated_record_is_discarded() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("workspace.snapshot");
+        long size;
+        try (SnapshotStore store = SnapshotStore.open(file)) {
+            store.putRepository(repository("client"));
+            size = store.size();
+            store.putRepository(repository("server"));
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 5);
+        }
+
+        try (SnapshotStore store = SnapshotStore.open(file)) {
+            assertThat(store.getRepositories()).containsExactly("client");
+            assertThat(store.size()).isEqualTo(size);
+            store.putWebhooks("client", Collections.emptyList());
+        }
+        try (SnapshotStore store = SnapshotStore.open(file)) {
+            assertThat(store.getWebhooks("client")).isEmpty();
+        }
+    }
+
+    @Test
+    public void corrupted_record_followed_by_others_fails_open() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("workspace.snapshot");
+        long offset;
+        try (SnapshotStore store = SnapshotStore.open(file)) {
+            store.putRepository(repository("client"));
+            offset = store.size();
+            store.putRepository(repository("server"));
+            store.putRepository(repository("tools"));
+        }
+        long size = Files.size(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            // flips a byte of the payload of the second record
+            channel.write(ByteBuffer.wrap(new byte[] { '#' }), offset + 20);
+        }
+
+        assertThatThrownBy(() -> SnapshotStore.open(file)).isInstanceOf(IOException.class).hasMessageContaining("Corrupted record");
+        assertThat(Files.size(file)).isEqualTo(size);
+    }
+
+    @Test
+    public void corrupted_length_of_a_middle_record_fails_open() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("workspace.snapshot");
+        long offset;
+        try (SnapshotStore store = SnapshotStore.open(file)) {
+            store.putRepository(repository("client"));
+            offset = store.size();
+            store.putRepository(repository("server"));
+            store.putRepository(repository("tools"));
+        }
+        byte[] content = Files.readAllBytes(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            // the length of the second record now points past the end of file
+            channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, content.length), offset);
+        }
+        byte[] corrupted = Files.readAllBytes(file);
+
+        assertThatThrownBy(() -> SnapshotStore.open(file)).isInstanceOf(IOException.class).hasMessageContaining("Corrupted record");
+        assertThat(Files.readAllBytes(file)).isEqualTo(corrupted);
+    }
+
+    @Test
+    public void appended_records_are_read_without_reopen() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("workspace.snapshot");
+        try (SnapshotStore store = SnapshotStore.open(file)) {
+            for (int i = 0; i < 100; i++) {
+                store.putRepository(repository("repo" + i));
+                assertThat(store.getRepository("repo" + i).getName()).isEqualTo("REPO" + i);
+                assertThat(store.getRepository("repo0").getName()).isEqualTo("REPO0");
+            }
+        }
+    }
+
+    @Test
+    public void compact_drops_superseded_records() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("workspace.snapshot");
+        try (SnapshotStore store = SnapshotStore.open(file)) {
+            for (int i = 0; i < 10; i++) {
+                store.putRepository(repository("client"));
+            }
+            store.putRepository(repository("server"));
+            store.remove("server");
+            long size = store.size();
+
+            store.compact();
+            assertThat(store.size()).isLessThan(size);
+            assertThat(store.getRepositories()).containsExactly("client");
+            store.putRepository(repository("server"));
+        }
+        try (SnapshotStore store = SnapshotStore.open(file)) {
+            assertThat(store.getRepositories()).containsExactly("client", "server");
+        }
+    }
+}
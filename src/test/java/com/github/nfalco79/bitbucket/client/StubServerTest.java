@@ -0,0 +1,162 @@
+/*
+ * Copyright 2022 Falco Nikolas
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.nfalco79.bitbucket.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.hc.core5.http.HttpStatus;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.nfalco79.bitbucket.client.Credentials.CredentialsBuilder;
+import com.github.nfalco79.bitbucket.client.model.BranchRestriction;
+import com.github.nfalco79.bitbucket.client.model.BranchRestriction.Builder;
+import com.github.nfalco79.bitbucket.client.model.Repository;
+import com.github.nfalco79.bitbucket.client.model.UserInfo;
+
+public class StubServerTest {
+
+    private BitbucketStubServer server;
+
+    @Before
+    public void startServer() throws Exception {
+        server = new BitbucketStubServer().start();
+    }
+
+    @After
+    public void stopServer() {
+        server.close();
+    }
+
+    @Test
+    public void generated_dataset_is_paged() throws Exception {
+        server.dataset("/2.0/repositories/nfalco79", 250);
+
+        try (BitbucketCloudClient client = new BitbucketCloudClient(CredentialsBuilder.anonymous(), server.configure(new TransportConfig()))) {
+            List<Repository> repositories = client.getRepositories("nfalco79");
+            assertThat(repositories).hasSize(250);
+            assertThat(repositories).extracting(Repository::getSlug).doesNotHaveDuplicates();
+            assertThat(server.getRequests()).hasSize(3);
+        }
+    }
+
+    @Test
+    public void fixture_served_to_async_client() throws Exception {
+        try (BitbucketCloudClient client = new BitbucketCloudClient(CredentialsBuilder.anonymous(), server.configure(new TransportConfig()));
+                BitbucketCloudAsyncClient asyncClient = new BitbucketCloudAsyncClient(client)) {
+            UserInfo user = asyncClient.getUser().get(10, TimeUnit.SECONDS);
+            assertThat(user).isEqualTo(client.getUser());
+            assertThat(server.getRequests()).containsOnly("GET /2.0/user");
+        }
+    }
+
+    @Test
+    public void async_client_renews_rejected_token_on_its_executor() throws Exception {
+        AtomicInteger tasks = new AtomicInteger();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (BitbucketCloudClient client = new BitbucketCloudClient(CredentialsBuilder.oauth2("client-id", "client-secret"), server.configure(new TransportConfig()));
+                BitbucketCloudAsyncClient asyncClient = new BitbucketCloudAsyncClient(client)) {
+            asyncClient.setExecutor(task -> {
+                tasks.incrementAndGet();
+                executor.execute(task);
+            });
+            server.resetRequests();
+            server.failNext(HttpStatus.SC_UNAUTHORIZED, 1);
+
+            assertThat(asyncClient.getUser().get(10, TimeUnit.SECONDS)).isNotNull();
+            assertThat(tasks).hasValue(1);
+            assertThat(server.getRequests()).containsExactly("GET /2.0/user", "POST /site/oauth2/access_token", "GET /2.0/user");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void oauth2_token_granted_by_the_stub() throws Exception {
+        try (BitbucketCloudClient client = new BitbucketCloudClient(CredentialsBuilder.oauth2("client-id", "client-secret"), server.configure(new TransportConfig()))) {
+            assertThat(client.getUser()).isNotNull();
+            assertThat(server.getRequests()).containsExactly("POST /site/oauth2/access_token", "GET /2.0/user");
+        }
+    }
+
+    @Test
+    public void injected_errors_are_retried() throws Exception {
+        try (BitbucketCloudClient client = new BitbucketCloudClient(CredentialsBuilder.anonymous(), server.configure(new TransportConfig()))) {
+            server.failNext(HttpStatus.SC_TOO_MANY_REQUESTS, 2);
+            assertThat(client.getUser()).isNotNull();
+            assertThat(server.getRequests()).hasSize(3);
+
+            server.resetRequests();
+            server.failNext(HttpStatus.SC_SERVICE_UNAVAILABLE, 1);
+            assertThat(client.getUser()).isNotNull();
+            assertThat(server.getRequests()).hasSize(2);
+        }
+    }
+
+    @Test
+    public void dry_run_prune_reports_deletes_without_sending_them() throws Exception {
+        try (BitbucketCloudClient client = new BitbucketCloudClient(CredentialsBuilder.anonymous(), server.configure(new TransportConfig()))) {
+            client.setDryRun(true);
+            List<BranchRestriction> desired = Arrays.asList(Builder.newDeletePermission("master"));
+
+            ReconcileReport<BranchRestriction> report = client.reconcileBranchRestrictions("nfalco79", "test-repos", desired, true);
+            assertThat(report.getDeleted()).isNotEmpty();
+            assertThat(server.getRequests()).containsOnly("GET /2.0/repositories/nfalco79/test-repos/branch-restrictions?pagelen=100");
+        }
+    }
+
+    @Test
+    public void async_client_honours_rate_limit() throws Exception {
+        server.retryAfter(Duration.ofSeconds(1));
+        try (BitbucketCloudClient client = new BitbucketCloudClient(CredentialsBuilder.anonymous(), server.configure(new TransportConfig()));
+                BitbucketCloudAsyncClient asyncClient = new BitbucketCloudAsyncClient(client)) {
+            server.failNext(HttpStatus.SC_TOO_MANY_REQUESTS, 1);
+            long start = System.nanoTime();
+            assertThat(asyncClient.getUser().get(10, TimeUnit.SECONDS)).isNotNull();
+            assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(900));
+            assertThat(server.getRequests()).containsExactly("GET /2.0/user", "GET /2.0/user");
+
+            // the pause is shared with the synchronous client
+            client.setMaxRateLimitRetries(0);
+            server.failNext(HttpStatus.SC_TOO_MANY_REQUESTS, 1);
+            assertThatThrownBy(() -> asyncClient.getUser().get(10, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class);
+            start = System.nanoTime();
+            assertThat(client.getUser()).isNotNull();
+            assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(900));
+        }
+    }
+
+    @Test
+    public void injected_latency() throws Exception {
+        server.latency(Duration.ofMillis(200));
+        try (BitbucketCloudClient client = new BitbucketCloudClient(CredentialsBuilder.anonymous(), server.configure(new TransportConfig()))) {
+            long start = System.nanoTime();
+            client.getUser();
+            assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(200));
+        }
+    }
+}
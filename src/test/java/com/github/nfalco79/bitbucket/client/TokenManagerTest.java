@@ -0,0 +1,129 @@
+/*
+ * Copyright 2022 Falco Nikolas
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.nfalco79.bitbucket.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hc.core5.http.HttpStatus;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.nfalco79.bitbucket.client.Credentials.CredentialsBuilder;
+import com.github.nfalco79.bitbucket.client.model.UserInfo;
+
+public class TokenManagerTest {
+
+    private BitbucketStubServer server;
+    private BitbucketCloudClient client;
+
+    @Before
+    public void setupServer() throws Exception {
+        server = new BitbucketStubServer().start();
+    }
+
+    private BitbucketCloudClient newClient() {
+        return new BitbucketCloudClient(CredentialsBuilder.oauth2("clientId", "clientSecret"), server.configure(new TransportConfig()));
+    }
+
+    private long unauthorized() {
+        return server.getResponses().stream().filter(status -> status == HttpStatus.SC_UNAUTHORIZED).count();
+    }
+
+    @After
+    public void shutdownServer() throws Exception {
+        if (client != null) {
+            client.close();
+        }
+        server.close();
+    }
+
+    @Test
+    public void rejected_token_is_renewed_and_request_replayed() throws Exception {
+        client = newClient();
+        assertThat(server.getTokens()).isEqualTo(1);
+
+        // token revoked by server
+        server.requireToken("stub-token-2");
+        UserInfo user = client.getUser();
+
+        assertThat(user).isNotNull();
+        assertThat(unauthorized()).isEqualTo(1);
+        assertThat(server.getTokens()).isEqualTo(2);
+    }
+
+    @Test
+    public void token_is_renewed_once_ahead_of_expiration() throws Exception {
+        server.tokenExpiration(Duration.ofSeconds(2));
+        client = newClient();
+        client.setTokenRefreshSkew(Duration.ofSeconds(1));
+        server.requireToken("stub-token-2");
+        // within the skew of first token
+        Thread.sleep(1100);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<UserInfo>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> client.getUser()));
+            }
+            for (Future<UserInfo> future : futures) {
+                assertThat(future.get(10, TimeUnit.SECONDS)).isNotNull();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(server.getTokens()).isEqualTo(2);
+        assertThat(unauthorized()).isZero();
+    }
+
+    @Test
+    public void token_is_renewed_in_dry_run() throws Exception {
+        client = newClient();
+        client.setDryRun(true);
+
+        // token revoked by server
+        server.requireToken("stub-token-2");
+        UserInfo user = client.getUser();
+
+        assertThat(user).isNotNull();
+        assertThat(server.getTokens()).isEqualTo(2);
+    }
+
+    @Test
+    public void token_without_expiration_is_renewed_only_when_rejected() throws Exception {
+        server.tokenExpiration(null);
+        client = newClient();
+
+        client.getUser();
+        client.getUser();
+        assertThat(server.getTokens()).isEqualTo(1);
+
+        // token revoked by server
+        server.requireToken("stub-token-2");
+        assertThat(client.getUser()).isNotNull();
+        assertThat(server.getTokens()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2022 Falco Nikolas
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.nfalco79.bitbucket.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.github.nfalco79.bitbucket.client.model.Repository;
+
+public class TransferStatsTest {
+
+    private BitbucketStubServer server;
+    private BitbucketCloudClient client;
+
+    @Before
+    public void setupServer() throws Exception {
+        server = new BitbucketStubServer().start();
+    }
+
+    private BitbucketCloudClient newClient(TransportConfig transport) {
+        return new BitbucketCloudClient(Mockito.mock(Credentials.class), server.configure(transport));
+    }
+
+    @After
+    public void shutdownServer() throws Exception {
+        if (client != null) {
+            client.close();
+        }
+        server.close();
+    }
+
+    @Test
+    public void compressed_responses_are_decoded_and_accounted() throws Exception {
+        client = newClient(new TransportConfig());
+
+        List<Repository> repositories = client.getRepositories("nfalco79");
+
+        assertThat(repositories).isNotEmpty();
+        TransferStats stats = client.getTransferStats().get("/2.0/repositories/{workspace}");
+        assertThat(stats).isNotNull();
+        assertThat(stats.getResponses()).isEqualTo(1);
+        assertThat(stats.getWireBytes()).isPositive().isLessThan(stats.getContentBytes());
+    }
+
+    @Test
+    public void compression_can_be_disabled() throws Exception {
+        client = newClient(new TransportConfig().setCompression(false));
+
+        assertThat(client.getUser()).isNotNull();
+
+        TransferStats stats = client.getTransferStats().get("/2.0/user");
+        assertThat(stats.getWireBytes()).isPositive().isEqualTo(stats.getContentBytes());
+    }
+
+    @Test
+    public void endpoints_resolved_under_a_context_path() {
+        TransferStatistics statistics = new TransferStatistics(Arrays.asList("https://api.bitbucket.org/2.0/repositories/{workspace}"));
+        String apiURL = "http://proxy.example.com/bitbucket";
+
+        assertThat(statistics.endpoint("/bitbucket/2.0/repositories/nfalco79?page=2", apiURL)).isEqualTo("/2.0/repositories/{workspace}");
+        assertThat(statistics.endpoint("http://proxy.example.com/bitbucket/2.0/repositories/nfalco79/test-repos", apiURL)) //
+                .isEqualTo("/2.0/repositories/{workspace}/{id}");
+        assertThat(statistics.endpoint("/bitbucket/2.0/snippets/nfalco79/1234", apiURL)).isEqualTo(TransferStatistics.OTHER);
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2022 Falco Nikolas
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.github.nfalco79.bitbucket.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hc.core5.pool.PoolStats;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.github.nfalco79.bitbucket.client.model.UserInfo;
+
+public class TransportConfigTest {
+
+    private BitbucketStubServer server;
+
+    @Before
+    public void setupServer() throws Exception {
+        server = new BitbucketStubServer().hold().start();
+    }
+
+    @After
+    public void shutdownServer() {
+        server.close();
+    }
+
+    @Test
+    public void callers_wait_for_a_connection_over_max_per_route() throws Exception {
+        TransportConfig transport = server.configure(new TransportConfig().setMaxTotal(10).setMaxPerRoute(2));
+        try (BitbucketCloudClient client = new BitbucketCloudClient(Mockito.mock(Credentials.class), transport)) {
+            assertThat(client.getPoolStats().getMax()).isEqualTo(10);
+
+            ExecutorService executor = Executors.newFixedThreadPool(3);
+            try {
+                Future<?>[] calls = new Future<?>[3];
+                for (int i = 0; i < calls.length; i++) {
+                    calls[i] = executor.submit(() -> client.getUser());
+                }
+                PoolStats stats = client.getPoolStats();
+                long timeout = System.currentTimeMillis() + 5000;
+                while ((stats.getLeased() != 2 || stats.getPending() != 1) && System.currentTimeMillis() < timeout) {
+                    Thread.sleep(10);
+                    stats = client.getPoolStats();
+                }
+                assertThat(stats.getLeased()).isEqualTo(2);
+                assertThat(stats.getPending()).isEqualTo(1);
+
+                server.release();
+                for (Future<?> call : calls) {
+                    assertThat(call.get(10, TimeUnit.SECONDS)).isInstanceOf(UserInfo.class);
+                }
+                assertThat(client.getPoolStats().getLeased()).isZero();
+                assertThat(client.getPoolStats().getAvailable()).isEqualTo(2);
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+}